@@ -0,0 +1,43 @@
+#!/usr/bin/env bash
+# 重定向接口压测：对同一个运行中的实例，按多个并发度依次运行 wrk 并输出 QPS / 延迟分位
+# 用法：
+#   mysql -N -e "SELECT short_code FROM link_tracker.t_short_link LIMIT 10000" > codes.txt
+#   BASE_URL=http://127.0.0.1:8080 CODES_FILE=codes.txt LABEL=platform ./docs/bench/redirect-bench.sh
+# 对比虚拟线程：分别以 TRACKER_VIRTUAL_THREADS=false / true 启动服务后各运行一次，LABEL 区分结果
+# 设置 SERVER_PID（服务进程号，需与 wrk 在同一台机器）时额外输出每个请求消耗的服务端 CPU 时间，
+# 用于对比 TRACKER_REDIRECT_FAST_PATH=true / false
+set -euo pipefail
+
+BASE_URL=${BASE_URL:-http://127.0.0.1:8080}
+export CODES_FILE=${CODES_FILE:-codes.txt}
+LABEL=${LABEL:-run}
+DURATION=${DURATION:-30s}
+THREADS=${THREADS:-8}
+CONNECTIONS=${CONNECTIONS:-"64 256 1024 4096"}
+SCRIPT_DIR=$(cd "$(dirname "$0")" && pwd)
+SERVER_PID=${SERVER_PID:-}
+CLK_TCK=$(getconf CLK_TCK)
+
+# 进程累计 CPU 时间（utime + stime，单位 tick）
+cpu_ticks() {
+  awk '{print $14 + $15}' "/proc/$SERVER_PID/stat"
+}
+
+command -v wrk > /dev/null || { echo "需要安装 wrk" >&2; exit 1; }
+
+# 预热：让 L1/L2 缓存与 JIT 进入稳定状态
+wrk -t"$THREADS" -c64 -d10s -s "$SCRIPT_DIR/redirect.lua" "$BASE_URL" > /dev/null
+
+for c in $CONNECTIONS; do
+  printf "%-10s c=%-5s " "$LABEL" "$c"
+  [ -n "$SERVER_PID" ] && before=$(cpu_ticks)
+  result=$(wrk -t"$THREADS" -c"$c" -d"$DURATION" --timeout 5s -s "$SCRIPT_DIR/redirect.lua" "$BASE_URL" | tail -n 1)
+  if [ -n "$SERVER_PID" ]; then
+    after=$(cpu_ticks)
+    requests=$(echo "$result" | sed -E 's/^requests=([0-9]+).*/\1/')
+    cpu=$(awk -v t="$((after - before))" -v hz="$CLK_TCK" -v n="$requests" 'BEGIN { printf "%.1f", t / hz * 1e6 / (n > 0 ? n : 1) }')
+    echo "$result  cpu=${cpu}us/req"
+  else
+    echo "$result"
+  fi
+done
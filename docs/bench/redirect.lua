@@ -0,0 +1,35 @@
+-- wrk 脚本：从 CODES_FILE 读取短码（每行一个），每个请求随机挑一个访问重定向接口
+-- 不跟随 302，只统计重定向接口本身的吞吐与延迟
+local codes = {}
+
+function init(args)
+  local path = os.getenv("CODES_FILE") or "codes.txt"
+  for line in io.lines(path) do
+    if #line > 0 then
+      codes[#codes + 1] = line
+    end
+  end
+  if #codes == 0 then
+    error("短码文件为空: " .. path)
+  end
+  math.randomseed(os.time() + tonumber(tostring({}):sub(8), 16) % 100000)
+end
+
+function request()
+  return wrk.format("GET", "/" .. codes[math.random(#codes)])
+end
+
+local non3xx = 0
+
+function response(status, headers, body)
+  if status < 300 or status >= 400 then
+    non3xx = non3xx + 1
+  end
+end
+
+function done(summary, latency, requests)
+  io.write(string.format("requests=%d  QPS=%.0f  p50=%.2fms  p99=%.2fms  p999=%.2fms  errors=%d\n",
+    summary.requests, summary.requests / (summary.duration / 1e6),
+    latency:percentile(50) / 1000, latency:percentile(99) / 1000, latency:percentile(99.9) / 1000,
+    summary.errors.status + summary.errors.connect + summary.errors.read + summary.errors.write + summary.errors.timeout))
+end
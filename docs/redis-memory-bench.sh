@@ -0,0 +1,64 @@
+#!/usr/bin/env bash
+# 实测两种存储布局的内存占用：分别写入 N 个短链接的元数据与点击计数器，比较 used_memory 并外推到 1000 万
+# 用法：REDIS_CLI="redis-cli -h 127.0.0.1 -a 123321 -n 15" N=100000 ./docs/redis-memory-bench.sh
+# 注意：会清空所选数据库（默认 15），请只在测试实例上运行
+set -euo pipefail
+
+REDIS_CLI=${REDIS_CLI:-"redis-cli -n 15"}
+N=${N:-100000}
+BUCKET_SIZE=${BUCKET_SIZE:-100}
+URL="https://www.example.com/campaign/2026/spring-sale/landing-page?utm_source=newsletter&utm_medium=email&x=1"
+
+used_memory() {
+  $REDIS_CLI INFO memory | awk -F: '/^used_memory:/ {gsub("\r", "", $2); print $2}'
+}
+
+# 以 RESP 协议生成命令，交给 redis-cli --pipe 批量执行
+resp() {
+  awk -v n="$N" -v url="$URL" -v layout="$1" -v bucket="$BUCKET_SIZE" '
+    function cmd(a, b, c, d, e,    argc) {
+      argc = (e != "") ? 5 : (d != "") ? 4 : 3
+      printf "*%d\r\n$%d\r\n%s\r\n$%d\r\n%s\r\n$%d\r\n%s\r\n", argc, length(a), a, length(b), b, length(c), c
+      if (d != "") printf "$%d\r\n%s\r\n", length(d), d
+      if (e != "") printf "$%d\r\n%s\r\n", length(e), e
+    }
+    function base62(x,    s, chars) {
+      chars = "0123456789abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ"
+      s = ""
+      while (x > 0) { s = substr(chars, x % 62 + 1, 1) s; x = int(x / 62) }
+      return s
+    }
+    BEGIN {
+      base = 62 ^ 5
+      for (i = 0; i < n; i++) {
+        id = base + i; code = base62(id); expire = (i % 2) ? "1767196800" : ""
+        if (layout == "string") {
+          json = sprintf("{\"id\":%d,\"shortCode\":\"%s\",\"userId\":42,\"expireTime\":%s,\"longUrl\":\"%s\"}", \
+                         id, code, expire == "" ? "null" : "\"2026-01-01T00:00:00\"", url)
+          cmd("SET", "shortLink:meta:" code, json, "EX", "86400")
+          cmd("SET", "shortLink:clicks:" code, i % 100, "", "")
+        } else {
+          b = int(id / bucket)
+          cmd("HSET", "shortLink:h:meta:" b, code, "42|" expire "|" url, "")
+          cmd("HSET", "shortLink:h:clicks:" b, code, i % 100, "")
+        }
+      }
+    }'
+}
+
+measure() {
+  $REDIS_CLI FLUSHDB > /dev/null
+  local before after
+  before=$(used_memory)
+  resp "$1" | $REDIS_CLI --pipe > /dev/null
+  after=$(used_memory)
+  awk -v layout="$1" -v d="$((after - before))" -v n="$N" 'BEGIN {
+    printf "%-6s  %8.1f B/link  ~%.2f GB / 10M links\n", layout, d / n, d / n * 1e7 / 1024 / 1024 / 1024
+  }'
+}
+
+$REDIS_CLI CONFIG SET hash-max-listpack-entries "$BUCKET_SIZE" > /dev/null
+$REDIS_CLI CONFIG SET hash-max-listpack-value 512 > /dev/null
+measure string
+measure hash
+$REDIS_CLI FLUSHDB > /dev/null
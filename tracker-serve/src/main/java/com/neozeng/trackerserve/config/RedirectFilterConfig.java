@@ -0,0 +1,34 @@
+package com.neozeng.trackerserve.config;
+
+import com.neozeng.trackerserve.filter.RedirectFastPathFilter;
+import com.neozeng.trackerserve.service.ShortLinkService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/**
+ * 重定向快速通道过滤器注册
+ * 以最高优先级挂在所有过滤器之前；tracker.redirect.fast-path.enabled=false 时不注册，
+ * 重定向回到 RedirectController（便于压测对比）。开启响应式重定向时也不注册，由 ReactiveRedirectController 处理
+ */
+@Configuration
+@ConditionalOnProperty(name = "tracker.redirect.fast-path.enabled", havingValue = "true", matchIfMissing = true)
+public class RedirectFilterConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "tracker.redirect.reactive.enabled", havingValue = "false", matchIfMissing = true)
+    public FilterRegistrationBean<RedirectFastPathFilter> redirectFastPathFilter(
+            ShortLinkService shortLinkService,
+            @Value("${tracker.redirect.fast-path.max-code-length:16}") int maxCodeLength,
+            @Value("${tracker.redirect.not-found-url:https://your-domain.com/404}") String notFoundUrl) {
+        FilterRegistrationBean<RedirectFastPathFilter> registration =
+                new FilterRegistrationBean<>(new RedirectFastPathFilter(shortLinkService, maxCodeLength, notFoundUrl));
+        registration.addUrlPatterns("/*");
+        registration.setName("redirectFastPathFilter");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
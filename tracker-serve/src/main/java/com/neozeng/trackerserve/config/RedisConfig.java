@@ -0,0 +1,44 @@
+package com.neozeng.trackerserve.config;
+
+import com.neozeng.trackerserve.util.CacheClient;
+import com.neozeng.trackerserve.util.RedisConstants;
+import com.neozeng.trackerserve.util.ShortCodeBloomFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Redis 配置类
+ * 订阅缓存失效广播，保证多节点的本地 L1 缓存一致；
+ * 订阅新增短码广播，保证多节点的布隆过滤器一致
+ */
+@Slf4j
+@Configuration
+public class RedisConfig {
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                       CacheClient cacheClient,
+                                                                       ShortCodeBloomFilter shortCodeBloomFilter) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener((message, pattern) -> {
+            String key = new String(message.getBody(), StandardCharsets.UTF_8);
+            log.debug("收到缓存失效广播，清理本地缓存: {}", key);
+            cacheClient.invalidateLocal(key);
+        }, new ChannelTopic(RedisConstants.CACHE_INVALIDATE_CHANNEL));
+        container.addMessageListener((message, pattern) -> {
+            // 批量创建时一条消息携带多个短码，以逗号分隔（Base62 短码不含逗号）
+            String shortCodes = new String(message.getBody(), StandardCharsets.UTF_8);
+            for (String shortCode : shortCodes.split(",")) {
+                shortCodeBloomFilter.putLocal(shortCode);
+            }
+        }, new ChannelTopic(RedisConstants.BLOOM_ADD_CHANNEL));
+        return container;
+    }
+}
@@ -0,0 +1,53 @@
+package com.neozeng.trackerserve.controller;
+
+import com.neozeng.trackerserve.util.CacheClient;
+import com.neozeng.trackerserve.util.ClickAggregator;
+import com.neozeng.trackerserve.util.HotKeyDetector;
+import com.neozeng.trackerserve.util.LinkCacheLayout;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 热点短码管理端点：GET /actuator/hotkeys
+ * 列出本节点当前识别出的热点短码、点击速率、元数据读取来源（pinned / l1 / remote）以及本地暂缓写入的点击数。
+ * 与 /actuator/metrics 一样面向运维，不经过业务登录，需通过 management.endpoints.web.exposure 开放。
+ */
+@Component
+@Endpoint(id = "hotkeys")
+@RequiredArgsConstructor
+public class HotKeyEndpoint {
+
+    private final HotKeyDetector hotKeyDetector;
+    private final CacheClient cacheClient;
+    private final ClickAggregator clickAggregator;
+    private final LinkCacheLayout linkCacheLayout;
+
+    @ReadOperation
+    public Map<String, Object> hotKeys() {
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (HotKeyDetector.HotKey hotKey : hotKeyDetector.getHotKeys()) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("shortCode", hotKey.getShortCode());
+            item.put("ratePerSecond", Math.round(hotKey.getRatePerSecond() * 10) / 10.0);
+            item.put("hotSince", LocalDateTime.ofInstant(Instant.ofEpochMilli(hotKey.getHotSince()), ZoneId.systemDefault()));
+            item.put("servedFrom", cacheClient.localSource(linkCacheLayout.metaKey(hotKey.getShortCode())));
+            item.put("heldClicks", clickAggregator.getHeldClicks(hotKey.getShortCode()));
+            items.add(item);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", hotKeyDetector.isEnabled());
+        result.put("count", items.size());
+        result.put("hotKeys", items);
+        return result;
+    }
+}
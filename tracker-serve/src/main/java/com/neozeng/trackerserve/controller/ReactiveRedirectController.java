@@ -0,0 +1,118 @@
+package com.neozeng.trackerserve.controller;
+
+import cn.hutool.core.util.StrUtil;
+import com.neozeng.trackerserve.exception.DownstreamBusyException;
+import com.neozeng.trackerserve.service.ReactiveRedirectService;
+import com.neozeng.trackerserve.service.ShortLinkService;
+import com.neozeng.trackerserve.util.IpUtils;
+import com.neozeng.trackerserve.util.RedirectPolicyUtils;
+import com.neozeng.trackerserve.pojo.ShortLinkMeta;
+import io.lettuce.core.RedisCommandTimeoutException;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 响应式短链接重定向（tracker.redirect.reactive.enabled=true 时替代 RedirectController 与快速通道过滤器）
+ * 返回 Mono 后 Tomcat 工作线程立即释放，Redis 读取期间请求只占用一个异步上下文，不占用线程；
+ * 点击统计与访问日志和阻塞路径完全相同（内存聚合 + 有界执行器），响应头同样来自链接的重定向策略。
+ */
+@Slf4j
+@Controller
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "tracker.redirect.reactive.enabled", havingValue = "true")
+@Tag(name = "短链接重定向", description = "短链接访问和重定向接口")
+public class ReactiveRedirectController {
+
+    private final ReactiveRedirectService reactiveRedirectService;
+    private final ShortLinkService shortLinkService;
+
+    @Value("${tracker.redirect.not-found-url:https://your-domain.com/404}")
+    private String notFoundUrl;
+
+    @Operation(
+            summary = "短链接重定向（响应式）",
+            description = "根据短码访问并重定向到原始链接，同时记录访问日志和增加点击量"
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "302", description = "重定向成功（按链接配置也可能为 301 / 307 / 308）"),
+            @ApiResponse(responseCode = "503", description = "下游繁忙")
+    })
+    @GetMapping("/{shortCode}")
+    public Mono<ResponseEntity<Void>> redirect(
+            @Parameter(description = "短链接码", required = true, example = "abc123")
+            @PathVariable String shortCode,
+            HttpServletRequest request) {
+        if ("favicon.ico".equals(shortCode)) {
+            return Mono.just(ResponseEntity.notFound().build());
+        }
+        // 请求对象在异步完成后不可再访问，先取出访问日志需要的字段
+        String ip = IpUtils.getClientIp(request);
+        String ua = request.getHeader("User-Agent");
+        return reactiveRedirectService.resolve(shortCode)
+                .filter(meta -> StrUtil.isNotBlank(meta.getLongUrl()) && !meta.isExpiredAt(LocalDateTime.now()))
+                .doOnNext(meta -> recordAccess(meta, ip, ua))
+                .map(meta -> redirectTo(meta.getRedirectStatus(), meta.getCacheMaxAge(), meta.getLongUrl()))
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    log.warn("短链接 {} 不存在或已过期", shortCode);
+                    return redirectTo(RedirectPolicyUtils.DEFAULT_STATUS, 0, notFoundUrl);
+                }))
+                .onErrorResume(ReactiveRedirectController::isBusy, e -> {
+                    log.warn("响应式重定向下游繁忙，shortCode={}: {}", shortCode, e.getMessage());
+                    return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+                })
+                .doOnError(e -> log.error("响应式重定向异常，shortCode={}", shortCode, e));
+    }
+
+    /**
+     * 点击统计与访问日志交给 boundedElastic 执行：resolve 的结果在 Lettuce 的 I/O 线程上发出，
+     * 不能在事件循环线程上执行聚合与提交（提交可能走 caller-runs / spill 策略）；不等待完成，不影响跳转响应
+     */
+    private void recordAccess(ShortLinkMeta meta, String ip, String ua) {
+        try {
+            Schedulers.boundedElastic().schedule(() -> {
+                shortLinkService.incrementClicks(meta);
+                shortLinkService.recordVisitLog(meta, ip, ua);
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn("访问统计任务被拒绝，shortCode={}: {}", meta.getShortCode(), e.getMessage());
+        }
+    }
+
+    /**
+     * 只有下游限流与 Redis 超时视为繁忙返回 503，其余异常按普通错误交给全局异常处理
+     */
+    private static boolean isBusy(Throwable e) {
+        return e instanceof DownstreamBusyException
+                || e instanceof TimeoutException
+                || e instanceof QueryTimeoutException
+                || e instanceof RedisCommandTimeoutException;
+    }
+
+    private static ResponseEntity<Void> redirectTo(int status, int cacheMaxAge, String location) {
+        return ResponseEntity.status(status)
+                .header(HttpHeaders.LOCATION, location)
+                .header(HttpHeaders.CACHE_CONTROL, RedirectPolicyUtils.cacheControl(cacheMaxAge))
+                .build();
+    }
+}
@@ -6,9 +6,14 @@ import com.neozeng.trackerserve.mapper.VisitLogMapper;
 import com.neozeng.trackerserve.pojo.ShortLink;
 import com.neozeng.trackerserve.pojo.VisitLog;
 import com.neozeng.trackerserve.pojo.dto.ClickTrendItem;
+import com.neozeng.trackerserve.pojo.dto.ShortLinkBatchItem;
 import com.neozeng.trackerserve.pojo.dto.ShortLinkUpdateDTO;
 import com.neozeng.trackerserve.pojo.dto.TopLinkItem;
+import com.neozeng.trackerserve.pojo.dto.VisitLogCursor;
+import com.neozeng.trackerserve.service.ShortLinkBatchService;
 import com.neozeng.trackerserve.service.ShortLinkService;
+import com.neozeng.trackerserve.service.StatsService;
+import com.neozeng.trackerserve.util.RedirectPolicyUtils;
 import com.neozeng.trackerserve.util.UserHolder;
 import com.neozeng.trackerserve.pojo.User;
 import com.neozeng.trackerserve.exception.UnAuthorizedException;
@@ -22,16 +27,25 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.*;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 import jakarta.servlet.http.HttpServletRequest;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.DateTimeException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.Random;
-import java.util.stream.Collectors;
 
 /**
  * @author strive_qin
@@ -46,9 +60,27 @@ import java.util.stream.Collectors;
 @Tag(name = "短链接管理", description = "短链接的创建、查询、更新、删除以及统计分析接口")
 public class ShortLinkController {
     private final ShortLinkService shortLinkService;
+    private final StatsService statsService;
+    private final ShortLinkBatchService shortLinkBatchService;
     private final VisitLogMapper visitLogMapper;
     private final ShortLinkMapper shortLinkMapper;
 
+    /**
+     * 访问记录每页最大条数
+     */
+    private static final int MAX_VISIT_PAGE_SIZE = 100;
+
+    /**
+     * 批量创建接口单次最大条数
+     */
+    private static final int MAX_BATCH_CREATE_SIZE = 10000;
+
+    /**
+     * 点击趋势最大统计天数（按天 / 按小时）
+     */
+    private static final int MAX_TREND_DAYS = 365;
+    private static final int MAX_HOURLY_TREND_DAYS = 31;
+
     /**
      * 创建短链接
      * @param payload
@@ -67,7 +99,8 @@ public class ShortLinkController {
     })
     @PostMapping("/create")
     public Result<String> create(
-            @Parameter(description = "请求体，包含 longUrl（原始链接）、workspace（工作空间，可选）、expireDate（过期时间，可选）", 
+            @Parameter(description = "请求体，包含 longUrl（原始链接）、workspace（工作空间，可选）、expireDate（过期时间，可选）、dedup（是否去重，可选）、"
+                    + "redirectType（301/302/307/308，可选）、cacheMaxAge（跳转允许缓存的秒数，可选）", 
                     required = true, 
                     schema = @Schema(example = "{\"longUrl\":\"https://example.com\",\"workspace\":\"default\",\"expireDate\":\"2026-12-31 23:59:59\"}"))
             @RequestBody Map<String, String> payload, 
@@ -82,7 +115,20 @@ public class ShortLinkController {
             String expireDate = payload.get("expireDate");
             // 调用 Service 生成并存入数据库
             // 调用 Service 生成并存入数据库
-            String shortCode = shortLinkService.createShortLink(longUrl, workspace, expireDate);
+            Boolean dedup = payload.get("dedup") != null ? Boolean.valueOf(payload.get("dedup")) : null;
+            Integer redirectType;
+            Integer cacheMaxAge;
+            try {
+                redirectType = parseOptionalInt(payload.get("redirectType"));
+                cacheMaxAge = parseOptionalInt(payload.get("cacheMaxAge"));
+            } catch (NumberFormatException e) {
+                return Result.error("重定向状态码或缓存时间格式错误");
+            }
+            String policyError = RedirectPolicyUtils.validate(redirectType, cacheMaxAge);
+            if (policyError != null) {
+                return Result.error(policyError);
+            }
+            String shortCode = shortLinkService.createShortLink(longUrl, workspace, expireDate, dedup, redirectType, cacheMaxAge);
 
             // 💡 重点：直接返回 shortCode，不要在后端写死域名
             return Result.success(shortCode);
@@ -91,6 +137,125 @@ public class ShortLinkController {
         }
     }
 
+    private static Integer parseOptionalInt(String value) {
+        return value == null || value.isBlank() ? null : Integer.valueOf(value.trim());
+    }
+
+    /**
+     * 批量创建短链接
+     * 对应前端地址：POST /api/shortLink/batchCreate
+     */
+    @Operation(
+            summary = "批量创建短链接",
+            description = "一次创建多条短链接（单次最多 " + MAX_BATCH_CREATE_SIZE + " 条），返回与输入顺序一致的短码列表，需要用户登录认证",
+            security = @SecurityRequirement(name = "Bearer Authentication")
+    )
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "创建成功",
+                    content = @Content(schema = @Schema(implementation = Result.class))),
+            @ApiResponse(responseCode = "401", description = "未授权，需要登录")
+    })
+    @PostMapping("/batchCreate")
+    public Result<List<String>> batchCreate(
+            @Parameter(description = "待创建的短链接列表", required = true)
+            @RequestBody List<ShortLinkBatchItem> items) {
+        User user = requireLoginUser();
+        if (items == null || items.isEmpty()) {
+            return Result.error("创建列表不能为空");
+        }
+        if (items.size() > MAX_BATCH_CREATE_SIZE) {
+            return Result.error("单次最多创建 " + MAX_BATCH_CREATE_SIZE + " 条，更多请使用文件导入");
+        }
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        for (int i = 0; i < items.size(); i++) {
+            ShortLinkBatchItem item = items.get(i);
+            if (item.getLongUrl() == null || item.getLongUrl().isBlank()) {
+                return Result.error("第 " + (i + 1) + " 条原始链接为空");
+            }
+            if (item.getExpireDate() != null && !item.getExpireDate().isBlank()) {
+                try {
+                    LocalDateTime.parse(item.getExpireDate().trim(), formatter);
+                } catch (DateTimeException e) {
+                    return Result.error("第 " + (i + 1) + " 条过期时间格式错误，应为 yyyy-MM-dd HH:mm:ss");
+                }
+            }
+        }
+        return Result.success(shortLinkBatchService.createBatch(user.getId(), items));
+    }
+
+    /**
+     * 上传 CSV 文件批量导入短链接（每行：longUrl[,expireDate]）
+     * 对应前端地址：POST /api/shortLink/import
+     */
+    @Operation(
+            summary = "导入短链接文件",
+            description = "上传 CSV 文件（每行：longUrl[,expireDate]）后台导入，返回任务 ID，通过进度接口查询，需要用户登录认证",
+            security = @SecurityRequirement(name = "Bearer Authentication")
+    )
+    @PostMapping("/import")
+    public Result<String> importLinks(
+            @Parameter(description = "CSV 文件", required = true)
+            @RequestParam("file") MultipartFile file) throws IOException {
+        User user = requireLoginUser();
+        if (file.isEmpty()) {
+            return Result.error("导入文件为空");
+        }
+        return Result.success(shortLinkBatchService.startImport(user.getId(), file));
+    }
+
+    /**
+     * 查询导入进度
+     * 对应前端地址：GET /api/shortLink/import/{jobId}
+     */
+    @Operation(
+            summary = "查询导入进度",
+            description = "返回导入任务状态（RUNNING/DONE/FAILED）及已处理、成功、失败行数，需要用户登录认证",
+            security = @SecurityRequirement(name = "Bearer Authentication")
+    )
+    @GetMapping("/import/{jobId}")
+    public Result<Map<String, String>> getImportProgress(
+            @Parameter(description = "导入任务ID", required = true)
+            @PathVariable String jobId) {
+        User user = requireLoginUser();
+        Map<String, String> progress = shortLinkBatchService.getImportProgress(user.getId(), jobId);
+        return progress != null ? Result.success(progress) : Result.error("导入任务不存在或已过期");
+    }
+
+    /**
+     * 下载导入结果（CSV：shortCode,longUrl）
+     * 对应前端地址：GET /api/shortLink/import/{jobId}/result
+     */
+    @Operation(
+            summary = "下载导入结果",
+            description = "导入完成后下载结果文件（shortCode,longUrl），需要用户登录认证",
+            security = @SecurityRequirement(name = "Bearer Authentication")
+    )
+    @GetMapping("/import/{jobId}/result")
+    public ResponseEntity<Resource> downloadImportResult(
+            @Parameter(description = "导入任务ID", required = true)
+            @PathVariable String jobId) {
+        User user = requireLoginUser();
+        Path result = shortLinkBatchService.getImportResult(user.getId(), jobId);
+        if (result == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("text/csv;charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + jobId + ".csv\"")
+                .body(new FileSystemResource(result));
+    }
+
+    /**
+     * 批量接口要求已登录的真实用户（游客不可创建）
+     */
+    private User requireLoginUser() {
+        User user = UserHolder.getUser();
+        if (user == null || (user.getId() != null && user.getId() == 0L)) {
+            throw new UnAuthorizedException();
+        }
+        return user;
+    }
+
     /**
      * 展示短链接列表
      */
@@ -137,7 +302,7 @@ public class ShortLinkController {
      */
     @Operation(
             summary = "更新短链接",
-            description = "更新指定短链接的原始链接和过期时间，需要用户登录认证",
+            description = "更新指定短链接的原始链接、过期时间和重定向策略，需要用户登录认证",
             security = @SecurityRequirement(name = "Bearer Authentication")
     )
     @ApiResponses(value = {
@@ -159,9 +324,14 @@ public class ShortLinkController {
         if (updateDto.getExpireTime() == null) {
             return Result.error("有效期不能为空");
         }
+        String policyError = RedirectPolicyUtils.validate(updateDto.getRedirectType(), updateDto.getCacheMaxAge());
+        if (policyError != null) {
+            return Result.error(policyError);
+        }
 
         // 2. 调用 Service 进行更新
-        boolean success = shortLinkService.updateShortLink(id, updateDto.getLongUrl(), updateDto.getExpireTime());
+        boolean success = shortLinkService.updateShortLink(id, updateDto.getLongUrl(), updateDto.getExpireTime(),
+                updateDto.getRedirectType(), updateDto.getCacheMaxAge());
 
         return success ? Result.success(null) : Result.error("记录不存在或更新失败");
     }
@@ -192,21 +362,17 @@ public class ShortLinkController {
         }
 
         // 当前用户最近 5 条访问记录
-        Pageable pageable = PageRequest.of(0, 5, Sort.by("createTime").descending());
-        Page<VisitLog> page = visitLogMapper.findAll(pageable);
-        List<VisitLog> filtered = page.getContent().stream()
-                .filter(v -> user.getId().equals(v.getUserId()))
-                .toList();
-        return Result.success(filtered);
+        return Result.success(visitLogMapper.findLatestByUserId(user.getId(), PageRequest.of(0, 5)));
     }
 
     /**
-     * 获取所有访问记录（分页）
-     * 对应前端地址：GET /api/shortLink/visits/all?page=0&size=20
+     * 获取所有访问记录（游标分页）
+     * 对应前端地址：GET /api/shortLink/visits/all?size=20&cursor=xxx
+     * 第一页不传 cursor，之后传上一页返回的 nextCursor；不支持跳页，任意深度的页查询代价相同
      */
     @Operation(
-            summary = "获取所有访问记录（分页）",
-            description = "分页获取所有短链接访问记录，需要用户登录认证",
+            summary = "获取所有访问记录（游标分页）",
+            description = "按访问时间倒序分页获取当前用户的访问记录，通过上一页返回的 nextCursor 翻页，需要用户登录认证",
             security = @SecurityRequirement(name = "Bearer Authentication")
     )
     @ApiResponses(value = {
@@ -216,8 +382,8 @@ public class ShortLinkController {
     })
     @GetMapping("/visits/all")
     public Result<Map<String, Object>> getAllVisits(
-            @Parameter(description = "页码，从0开始", example = "0")
-            @RequestParam(defaultValue = "0") int page,
+            @Parameter(description = "分页游标，取上一页返回的 nextCursor，第一页不传")
+            @RequestParam(required = false) String cursor,
             @Parameter(description = "每页大小", example = "20")
             @RequestParam(defaultValue = "20") int size) {
         User user = UserHolder.getUser();
@@ -230,27 +396,48 @@ public class ShortLinkController {
             throw new UnAuthorizedException("游客模式下无法查看访问详情列表，请登录后继续");
         }
 
-        Pageable pageable = PageRequest.of(page, size, Sort.by("createTime").descending());
-        Page<VisitLog> visitPage = visitLogMapper.findAll(pageable);
+        if (size < 1 || size > MAX_VISIT_PAGE_SIZE) {
+            return Result.error("每页大小需在 1 到 " + MAX_VISIT_PAGE_SIZE + " 之间");
+        }
 
-        List<VisitLog> filteredContent = visitPage.getContent().stream()
-                .filter(v -> user.getId().equals(v.getUserId()))
-                .toList();
+        // 多取一条用于判断是否还有下一页
+        Pageable pageable = PageRequest.of(0, size + 1);
+        List<VisitLog> visits;
+        if (cursor == null || cursor.isBlank()) {
+            visits = visitLogMapper.findLatestByUserId(user.getId(), pageable);
+        } else {
+            VisitLogCursor after;
+            try {
+                after = VisitLogCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                return Result.error("分页游标无效，请从第一页重新加载");
+            }
+            visits = visitLogMapper.findByUserIdBefore(user.getId(), after.getCreateTime(), after.getId(), pageable);
+        }
+
+        boolean hasMore = visits.size() > size;
+        List<VisitLog> content = hasMore ? visits.subList(0, size) : visits;
+        String nextCursor = null;
+        if (hasMore) {
+            VisitLog last = content.get(content.size() - 1);
+            nextCursor = new VisitLogCursor(last.getCreateTime(), last.getId()).encode();
+        }
 
         Map<String, Object> response = new HashMap<>();
-        response.put("content", filteredContent);
-        response.put("totalElements", (long) filteredContent.size());
-        
+        response.put("content", content);
+        response.put("hasMore", hasMore);
+        response.put("nextCursor", nextCursor);
+
         return Result.success(response);
     }
 
     /**
      * 获取点击量趋势（过去 N 天）
-     * 对应前端地址：GET /api/shortLink/stats/clickTrend?days=7
+     * 对应前端地址：GET /api/shortLink/stats/clickTrend?days=7&granularity=day&timeZone=Asia/Shanghai&shortCode=xxx
      */
     @Operation(
             summary = "获取点击量趋势",
-            description = "获取过去N天的点击量趋势数据，需要用户登录认证",
+            description = "获取过去N天的点击量趋势数据，支持按天/按小时、调用方时区和按短码过滤，需要用户登录认证",
             security = @SecurityRequirement(name = "Bearer Authentication")
     )
     @ApiResponses(value = {
@@ -261,7 +448,13 @@ public class ShortLinkController {
     @GetMapping("/stats/clickTrend")
     public Result<List<ClickTrendItem>> getClickTrend(
             @Parameter(description = "统计天数，默认7天", example = "7")
-            @RequestParam(defaultValue = "7") int days) {
+            @RequestParam(defaultValue = "7") int days,
+            @Parameter(description = "统计粒度：day（按天）/ hour（按小时）", example = "day")
+            @RequestParam(defaultValue = "day") String granularity,
+            @Parameter(description = "时区，默认服务器时区", example = "Asia/Shanghai")
+            @RequestParam(required = false) String timeZone,
+            @Parameter(description = "只统计指定短码，不传则统计全部短链接", example = "abc123")
+            @RequestParam(required = false) String shortCode) {
         User user = UserHolder.getUser();
         if (user == null) {
             throw new UnAuthorizedException();
@@ -273,31 +466,21 @@ public class ShortLinkController {
             return Result.success(buildGuestMockTrendData(days));
         }
 
-        // 计算开始时间
-        LocalDateTime startTime = LocalDateTime.now().minusDays(days).withHour(0).withMinute(0).withSecond(0);
-        
-        // 查询时间范围内的访问记录
-        List<VisitLog> logs = visitLogMapper.findByUserIdAndCreateTimeAfter(user.getId(), startTime);
-        
-        // 按日期分组统计
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-        Map<String, Long> dailyClicks = logs.stream()
-                .collect(Collectors.groupingBy(
-                        log -> log.getCreateTime().format(formatter),
-                        Collectors.counting()
-                ));
-        
-        // 生成完整的日期序列（包括没有点击的日期）
-        List<ClickTrendItem> trendData = new ArrayList<>();
-        LocalDate currentDate = LocalDate.now();
-        for (int i = days - 1; i >= 0; i--) {
-            LocalDate date = currentDate.minusDays(i);
-            String dateStr = date.format(formatter);
-            Long clicks = dailyClicks.getOrDefault(dateStr, 0L);
-            trendData.add(new ClickTrendItem(dateStr, clicks));
+        if (!"day".equalsIgnoreCase(granularity) && !"hour".equalsIgnoreCase(granularity)) {
+            return Result.error("统计粒度只支持 day 或 hour");
         }
-        
-        return Result.success(trendData);
+        int maxDays = "hour".equalsIgnoreCase(granularity) ? MAX_HOURLY_TREND_DAYS : MAX_TREND_DAYS;
+        if (days < 1 || days > maxDays) {
+            return Result.error("统计天数需在 1 到 " + maxDays + " 之间");
+        }
+        ZoneId zone;
+        try {
+            zone = timeZone == null || timeZone.isBlank() ? ZoneId.systemDefault() : ZoneId.of(timeZone);
+        } catch (DateTimeException e) {
+            return Result.error("无效的时区: " + timeZone);
+        }
+
+        return Result.success(statsService.getClickTrend(user.getId(), days, granularity, zone, shortCode));
     }
 
     /**
@@ -343,7 +526,9 @@ public class ShortLinkController {
     @GetMapping("/stats/topLinks")
     public Result<List<TopLinkItem>> getTopLinks(
             @Parameter(description = "返回数量，默认5条", example = "5")
-            @RequestParam(defaultValue = "5") int limit) {
+            @RequestParam(defaultValue = "5") int limit,
+            @Parameter(description = "只统计最近 N 天的点击（读取小时预聚合表），不传则按累计总点击量排行", example = "7")
+            @RequestParam(required = false) Integer days) {
         User user = UserHolder.getUser();
         if (user == null) {
             throw new UnAuthorizedException();
@@ -356,6 +541,14 @@ public class ShortLinkController {
             return Result.success(result);
         }
 
+        // 指定时间窗口：从小时预聚合表汇总
+        if (days != null) {
+            if (days < 1 || days > MAX_TREND_DAYS) {
+                return Result.error("统计天数需在 1 到 " + MAX_TREND_DAYS + " 之间");
+            }
+            return Result.success(statsService.getTopLinks(user.getId(), days, limit));
+        }
+
         // 正常用户：调用 Service 层获取个人排行榜
         List<TopLinkItem> result = shortLinkService.getTopLinksRealTime(limit);
         return Result.success(result);
@@ -0,0 +1,16 @@
+package com.neozeng.trackerserve.exception;
+
+/**
+ * 下游（MySQL / Redis / IP 库）并发许可耗尽
+ * 抛出该异常后由全局异常处理器转换为 503 响应，调用方可稍后重试
+ */
+public class DownstreamBusyException extends RuntimeException {
+
+    public DownstreamBusyException(String message) {
+        super(message);
+    }
+
+    public DownstreamBusyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
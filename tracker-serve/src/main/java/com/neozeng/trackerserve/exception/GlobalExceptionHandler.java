@@ -28,6 +28,20 @@ public class GlobalExceptionHandler {
         return result;
     }
 
+    /**
+     * 下游繁忙（并发许可耗尽），快速失败
+     */
+    @ExceptionHandler(DownstreamBusyException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public Result<Void> handleDownstreamBusyException(DownstreamBusyException e) {
+        log.warn("下游繁忙: {}", e.getMessage());
+        Result<Void> result = new Result<>();
+        result.setCode(503);
+        result.setMessage("服务器繁忙，请稍后重试");
+        result.setData(null);
+        return result;
+    }
+
     /**
      * 兜底异常处理，避免错误信息泄露
      */
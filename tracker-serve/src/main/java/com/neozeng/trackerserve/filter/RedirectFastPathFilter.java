@@ -0,0 +1,115 @@
+package com.neozeng.trackerserve.filter;
+
+import cn.hutool.core.util.StrUtil;
+import com.neozeng.trackerserve.exception.DownstreamBusyException;
+import com.neozeng.trackerserve.pojo.ShortLinkMeta;
+import com.neozeng.trackerserve.service.ShortLinkService;
+import com.neozeng.trackerserve.util.IpUtils;
+import com.neozeng.trackerserve.util.RedirectPolicyUtils;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Set;
+
+/**
+ * 短链接重定向快速通道
+ * 位于过滤器链最前面，识别 /{shortCode} 形式的 GET 请求后直接查缓存并按链接的重定向策略写出跳转，
+ * 不再经过 LoginInterceptor、DispatcherServlet 的处理器映射与参数解析。
+ * 其他请求原样交给后续过滤器链；RedirectController 保留，关闭快速通道时仍由它处理重定向。
+ * 由 {@link com.neozeng.trackerserve.config.RedirectFilterConfig} 注册。
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class RedirectFastPathFilter implements Filter {
+
+    /**
+     * Base62 字符表（下标为字符编码），替代正则匹配
+     */
+    private static final boolean[] BASE62 = new boolean[128];
+
+    /**
+     * 满足 Base62 字符规则但属于系统路径的单段路径，交给后续链处理
+     */
+    private static final Set<String> RESERVED = Set.of("api", "error", "csrf", "actuator", "webjars", "v3", "swagger");
+
+    static {
+        for (char c = '0'; c <= '9'; c++) {
+            BASE62[c] = true;
+        }
+        for (char c = 'a'; c <= 'z'; c++) {
+            BASE62[c] = true;
+        }
+        for (char c = 'A'; c <= 'Z'; c++) {
+            BASE62[c] = true;
+        }
+    }
+
+    private final ShortLinkService shortLinkService;
+    private final int maxCodeLength;
+    /**
+     * 短码不存在或已过期时的跳转地址（tracker.redirect.not-found-url）
+     */
+    private final String notFoundUrl;
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        String shortCode = "GET".equals(httpRequest.getMethod()) ? extractShortCode(httpRequest) : null;
+        if (shortCode == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+        redirect(shortCode, httpRequest, (HttpServletResponse) response);
+    }
+
+    private void redirect(String shortCode, HttpServletRequest request, HttpServletResponse response) {
+        ShortLinkMeta meta;
+        try {
+            meta = shortLinkService.getShortLinkMeta(shortCode);
+        } catch (DownstreamBusyException e) {
+            log.warn("重定向快速通道下游繁忙，shortCode={}: {}", shortCode, e.getMessage());
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+
+        if (meta != null && StrUtil.isNotBlank(meta.getLongUrl()) && !meta.isExpiredAt(LocalDateTime.now())) {
+            shortLinkService.incrementClicks(meta);
+            shortLinkService.recordVisitLog(meta, IpUtils.getClientIp(request), request.getHeader("User-Agent"));
+            // 元数据中的链接已规范化，直接写 Location，不经过 sendRedirect 的相对路径解析
+            RedirectPolicyUtils.writeRedirect(response, meta.getRedirectStatus(), meta.getCacheMaxAge(), meta.getLongUrl());
+        } else {
+            log.warn("短链接 {} 不存在或已过期", shortCode);
+            RedirectPolicyUtils.writeRedirect(response, RedirectPolicyUtils.DEFAULT_STATUS, 0, notFoundUrl);
+        }
+    }
+
+    /**
+     * 请求路径为单段且全部由 Base62 字符组成时返回短码，否则返回 null
+     */
+    String extractShortCode(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        int start = request.getContextPath().length();
+        int length = uri.length() - start - 1;
+        if (length <= 0 || length > maxCodeLength || uri.charAt(start) != '/') {
+            return null;
+        }
+        for (int i = start + 1; i < uri.length(); i++) {
+            char c = uri.charAt(i);
+            if (c >= 128 || !BASE62[c]) {
+                return null;
+            }
+        }
+        String shortCode = uri.substring(start + 1);
+        return RESERVED.contains(shortCode) ? null : shortCode;
+    }
+}
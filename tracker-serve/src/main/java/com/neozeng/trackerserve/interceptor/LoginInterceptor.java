@@ -14,7 +14,7 @@ import org.springframework.web.servlet.HandlerInterceptor;
 
 /**
  * 登录拦截器
- * 用于验证 JWT Token 并设置当前用户信息到 ThreadLocal
+ * 用于验证 JWT Token 并把当前用户信息保存到请求属性（UserHolder）
  */
 @Slf4j
 @Component
@@ -56,7 +56,7 @@ public class LoginInterceptor implements HandlerInterceptor {
             if (!StringUtils.hasText(token)) {
                 String guestHeader = request.getHeader("Guest-Access");
                 if ("true".equalsIgnoreCase(guestHeader)) {
-                    // 游客模式：构造一个虚拟用户对象放入 ThreadLocal
+                    // 游客模式：构造一个虚拟用户对象放入 UserHolder
                     User guest = new User();
                     guest.setId(0L);
                     guest.setUsername("GUEST");
@@ -136,7 +136,7 @@ public class LoginInterceptor implements HandlerInterceptor {
                 return true;
             }
 
-            // 5. 查询用户信息并设置到 ThreadLocal
+            // 5. 查询用户信息并保存到 UserHolder
             User user = null;
             try {
                 user = userService.findById(userId);
@@ -148,12 +148,10 @@ public class LoginInterceptor implements HandlerInterceptor {
             
             if (user != null) {
                 UserHolder.saveUser(user);
-                System.out.println("✅ 用户信息已设置到 ThreadLocal：userId=" + userId + ", username=" + user.getUsername());
-                log.info("✅ 用户信息已成功设置到 ThreadLocal：userId={}, username={}, email={}", 
+                log.info("✅ 用户信息已成功保存到 UserHolder：userId={}, username={}, email={}", 
                         userId, user.getUsername(), user.getEmail());
             } else {
-                System.out.println("❌ 用户不存在：userId=" + userId);
-                log.warn("❌ 用户不存在：userId={}，无法设置到 ThreadLocal", userId);
+                log.warn("❌ 用户不存在：userId={}，无法保存到 UserHolder", userId);
                 UserHolder.removeUser();
                 if (requestPath.startsWith("/api/shortLink")) {
                     writeUnauthorized(response, "用户不存在或已被禁用，请重新登录");
@@ -175,7 +173,7 @@ public class LoginInterceptor implements HandlerInterceptor {
 
     @Override
     public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) throws Exception {
-        // 请求结束后清理 ThreadLocal，防止内存泄漏
+        // 请求结束后清理当前用户（请求属性随请求回收，这里显式清理保持对称）
         UserHolder.removeUser();
     }
 
@@ -0,0 +1,34 @@
+package com.neozeng.trackerserve.mapper;
+
+import com.neozeng.trackerserve.pojo.LinkHourlyStat;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface LinkHourlyStatMapper extends JpaRepository<LinkHourlyStat, Long> {
+
+    /**
+     * 指定短码在 [startTime, endTime) 内每小时的点击量，返回 (相对 startTime 的小时偏移, 次数)
+     */
+    @Query(value = "SELECT TIMESTAMPDIFF(HOUR, :startTime, s.stat_hour) AS bucket, s.clicks " +
+            "FROM t_link_hourly_stat s WHERE s.short_code = :shortCode " +
+            "AND s.stat_hour >= :startTime AND s.stat_hour < :endTime", nativeQuery = true)
+    List<Object[]> findHourlyByShortCode(@Param("shortCode") String shortCode,
+                                         @Param("startTime") LocalDateTime startTime,
+                                         @Param("endTime") LocalDateTime endTime);
+
+    /**
+     * 指定用户 startTime 之后点击量最高的短链接，返回 (短码, 点击量)
+     */
+    @Query(value = "SELECT s.short_code, SUM(s.clicks) AS total FROM t_link_hourly_stat s " +
+            "WHERE s.user_id = :userId AND s.stat_hour >= :startTime " +
+            "GROUP BY s.short_code ORDER BY total DESC LIMIT :limit", nativeQuery = true)
+    List<Object[]> findTopByUserIdSince(@Param("userId") Long userId,
+                                        @Param("startTime") LocalDateTime startTime,
+                                        @Param("limit") int limit);
+}
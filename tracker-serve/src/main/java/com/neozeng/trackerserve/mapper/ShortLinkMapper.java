@@ -9,6 +9,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -21,17 +22,40 @@ import java.util.List;
 public interface ShortLinkMapper extends JpaRepository<ShortLink, Long> {
     ShortLink findByShortCode(String shortCode);
 
+    /**
+     * 按短码批量查询（IN 查询，走短码唯一索引），用于排行榜等批量解析的缓存回源
+     */
+    List<ShortLink> findByShortCodeIn(Collection<String> shortCodes);
+
     /**
      * 根据用户 ID 查询该用户创建的所有短链接
      */
     List<ShortLink> findByUserId(Long userId);
     
+    /**
+     * 去重：按 (用户, 规范化 URL 哈希) 查找已有短链接（走 idx_user_url_hash 索引）
+     */
+    List<ShortLink> findByUserIdAndUrlHash(Long userId, String urlHash);
+
     /**
      * 查询点击量最多的前 N 个短链接
      */
     @Query("SELECT s FROM ShortLink s WHERE s.userId = :userId ORDER BY s.totalClicks DESC")
     List<ShortLink> findTopByUserIdOrderByTotalClicksDesc(@Param("userId") Long userId, Pageable pageable);
 
+    /**
+     * 全局点击量前 N 的短链接（走 idx_total_clicks 索引，只读取 N 行）
+     */
+    @Query("SELECT s FROM ShortLink s ORDER BY s.totalClicks DESC")
+    List<ShortLink> findTopOrderByTotalClicksDesc(Pageable pageable);
+
+    /**
+     * 按主键游标分批读取短码（仅查 id 与 shortCode 两列，用于启动时初始化布隆过滤器）
+     * 返回的每一行为 [id, shortCode]
+     */
+    @Query("SELECT s.id, s.shortCode FROM ShortLink s WHERE s.id > :lastId ORDER BY s.id ASC")
+    List<Object[]> findShortCodesAfterId(@Param("lastId") Long lastId, Pageable pageable);
+
     @Modifying // 💡 必须加，表示这是一个修改操作
     @Transactional // 💡 必须加，确保更新操作在事务中执行
     @Query("UPDATE ShortLink s SET s.totalClicks = s.totalClicks + :i WHERE s.shortCode = :shortCode")
@@ -0,0 +1,24 @@
+package com.neozeng.trackerserve.mapper;
+
+import com.neozeng.trackerserve.pojo.UserHourlyStat;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface UserHourlyStatMapper extends JpaRepository<UserHourlyStat, Long> {
+
+    /**
+     * 指定用户在 [startTime, endTime) 内每小时的点击量，返回 (相对 startTime 的小时偏移, 次数)
+     */
+    @Query(value = "SELECT TIMESTAMPDIFF(HOUR, :startTime, s.stat_hour) AS bucket, s.clicks " +
+            "FROM t_user_hourly_stat s WHERE s.user_id = :userId " +
+            "AND s.stat_hour >= :startTime AND s.stat_hour < :endTime", nativeQuery = true)
+    List<Object[]> findHourlyByUserId(@Param("userId") Long userId,
+                                      @Param("startTime") LocalDateTime startTime,
+                                      @Param("endTime") LocalDateTime endTime);
+}
@@ -17,9 +17,19 @@ public interface VisitLogMapper extends JpaRepository<VisitLog, Long> {
     Page<VisitLog> findAll(Pageable pageable);
     
     /**
-     * 查询指定用户在时间范围内的访问记录
+     * 游标分页第一页：指定用户最新的访问记录（走 idx_user_time_id 索引倒序扫描）
      */
-    @Query("SELECT v FROM VisitLog v WHERE v.userId = :userId AND v.createTime >= :startTime ORDER BY v.createTime DESC")
-    List<VisitLog> findByUserIdAndCreateTimeAfter(@Param("userId") Long userId,
-                                                  @Param("startTime") LocalDateTime startTime);
+    @Query("SELECT v FROM VisitLog v WHERE v.userId = :userId ORDER BY v.createTime DESC, v.id DESC")
+    List<VisitLog> findLatestByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    /**
+     * 游标分页后续页：从上一页最后一条 (createTime, id) 之后继续，不使用 OFFSET，任意深度的页代价相同
+     */
+    @Query("SELECT v FROM VisitLog v WHERE v.userId = :userId " +
+            "AND (v.createTime < :createTime OR (v.createTime = :createTime AND v.id < :id)) " +
+            "ORDER BY v.createTime DESC, v.id DESC")
+    List<VisitLog> findByUserIdBefore(@Param("userId") Long userId,
+                                      @Param("createTime") LocalDateTime createTime,
+                                      @Param("id") Long id,
+                                      Pageable pageable);
 }
@@ -0,0 +1,31 @@
+package com.neozeng.trackerserve.pojo;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 号段表：每个业务一行，max_id 为已经发放出去的最大 ID
+ * 各节点每次通过 UPDATE max_id = max_id + step 领取一整段 ID，在内存中发放
+ */
+@Data
+@Entity
+@Table(name = "t_id_segment")
+public class IdSegment {
+    @Id
+    @Column(name = "biz_tag", length = 64)
+    private String bizTag;
+
+    @Column(name = "max_id", nullable = false)
+    private Long maxId;
+
+    @Column(nullable = false)
+    private Integer step;
+
+    @Column(name = "update_time")
+    private LocalDateTime updateTime;
+}
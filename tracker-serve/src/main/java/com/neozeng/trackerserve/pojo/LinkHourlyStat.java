@@ -0,0 +1,44 @@
+package com.neozeng.trackerserve.pojo;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 短链接按小时汇总的点击量（预聚合表）
+ * 由 {@link com.neozeng.trackerserve.util.VisitLogWriter} 在每批访问日志写入时以 upsert 累加，
+ * 统计接口按小时桶查询，代价与时间跨度成正比而与原始点击量无关。
+ * <p>
+ * 已有历史数据可一次性回填：
+ * INSERT INTO t_link_hourly_stat (short_code, user_id, stat_hour, clicks)
+ * SELECT short_code, MAX(user_id), DATE_FORMAT(create_time, '%Y-%m-%d %H:00:00'), COUNT(*)
+ * FROM t_visit_log GROUP BY short_code, DATE_FORMAT(create_time, '%Y-%m-%d %H:00:00');
+ */
+@Data
+@Entity
+@Table(name = "t_link_hourly_stat", indexes = {
+        @Index(name = "uk_code_hour", columnList = "short_code, stat_hour", unique = true),
+        // 按用户统计时间窗口内的热门短链接
+        @Index(name = "idx_user_hour", columnList = "user_id, stat_hour")
+})
+public class LinkHourlyStat {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "short_code", nullable = false, length = 20)
+    private String shortCode;
+
+    @Column(name = "user_id")
+    private Long userId;
+
+    /**
+     * 小时桶起点（服务器本地时间，分秒为 0）
+     */
+    @Column(name = "stat_hour", nullable = false)
+    private LocalDateTime statHour;
+
+    @Column(nullable = false)
+    private Long clicks;
+}
@@ -1,6 +1,8 @@
 package com.neozeng.trackerserve.pojo;
 
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.neozeng.trackerserve.util.RedirectPolicyUtils;
 import io.swagger.v3.oas.annotations.media.Schema;
 import jakarta.persistence.*;
 import lombok.Data;
@@ -16,14 +18,20 @@ import java.time.LocalDateTime;
  */
 @Data
 @Entity
-@Table(name = "t_short_link")
+@Table(name = "t_short_link", indexes = {
+        // 重定向回源按短码查询
+        @Index(name = "uk_short_code", columnList = "shortCode", unique = true),
+        // 去重模式下按 (用户, 规范化 URL 哈希) 查找已有短链接
+        @Index(name = "idx_user_url_hash", columnList = "user_id, url_hash"),
+        // 全局排行榜回源：ORDER BY total_clicks DESC LIMIT n 沿索引倒序扫描，不做全表排序
+        @Index(name = "idx_total_clicks", columnList = "totalClicks")
+})
 @DynamicUpdate
 @Schema(description = "短链接实体")
 public class ShortLink {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Schema(description = "短链接ID", example = "1")
-    private Long id;// 自增主键
+    private Long id;// 由 SegmentIdGenerator 号段分配，插入前即可算出短码
     
     @Column(name = "user_id")
     @Schema(description = "用户ID", example = "1")
@@ -33,6 +41,10 @@ public class ShortLink {
     @Schema(description = "原始链接", example = "https://www.example.com")
     private String longUrl;       // 对应前端 linkForm.longUrl
     
+    @JsonIgnore
+    @Column(name = "url_hash", columnDefinition = "CHAR(64)")
+    private String urlHash;       // 规范化 URL 的 SHA-256，见 UrlUtils.hashUrl
+
     @Schema(description = "短链接码", example = "abc123")
     private String shortCode;     // 由 Base62Utils 生成的短码
     
@@ -46,4 +58,21 @@ public class ShortLink {
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
     @Schema(description = "创建时间", example = "2026-01-01 10:00:00")
     private LocalDateTime createTime;
+
+    @Column(name = "redirect_type")
+    @Schema(description = "重定向状态码（301/302/307/308），为空时使用 302", example = "302")
+    private Integer redirectType;
+
+    @Column(name = "cache_max_age")
+    @Schema(description = "跳转响应的 Cache-Control max-age（秒），为空或 0 表示不允许缓存", example = "0")
+    private Integer cacheMaxAge;
+
+    /**
+     * 浏览器 / CDN 是否可能直接复用跳转：为 true 时部分访问不会到达服务端，totalClicks 只是下限
+     */
+    @Schema(description = "是否为可缓存的重定向（点击量可能少计）", example = "false")
+    public boolean isCacheableRedirect() {
+        return RedirectPolicyUtils.isCacheable(RedirectPolicyUtils.statusOrDefault(redirectType),
+                RedirectPolicyUtils.maxAgeOrDefault(cacheMaxAge));
+    }
 }
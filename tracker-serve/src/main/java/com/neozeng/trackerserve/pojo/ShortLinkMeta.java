@@ -0,0 +1,88 @@
+package com.neozeng.trackerserve.pojo;
+
+import com.neozeng.trackerserve.util.Base62Utils;
+import com.neozeng.trackerserve.util.RedirectPolicyUtils;
+import com.neozeng.trackerserve.util.UrlUtils;
+import lombok.Data;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * 短链接元数据（缓存专用的精简结构）
+ * 重定向只需要这几个字段：跳转地址、归属用户、过期时间、重定向策略，
+ * 由 getRedirectUrl 一次解析后向下传递给点击统计和访问日志，异步链路不再查询数据库。
+ */
+@Data
+public class ShortLinkMeta {
+    private Long id;
+    private String shortCode;
+    private Long userId;
+    private LocalDateTime expireTime;
+    /**
+     * 已规范化（补全协议头）的原始链接，可直接用于重定向
+     */
+    private String longUrl;
+    /**
+     * 重定向状态码与 Cache-Control max-age（秒），见 {@link RedirectPolicyUtils}
+     */
+    private int redirectStatus = RedirectPolicyUtils.DEFAULT_STATUS;
+    private int cacheMaxAge;
+
+    public static ShortLinkMeta from(ShortLink link) {
+        ShortLinkMeta meta = new ShortLinkMeta();
+        meta.setId(link.getId());
+        meta.setShortCode(link.getShortCode());
+        meta.setUserId(link.getUserId());
+        meta.setExpireTime(link.getExpireTime());
+        meta.setLongUrl(UrlUtils.normalizeUrl(link.getLongUrl()));
+        meta.setRedirectStatus(RedirectPolicyUtils.statusOrDefault(link.getRedirectType()));
+        meta.setCacheMaxAge(RedirectPolicyUtils.maxAgeOrDefault(link.getCacheMaxAge()));
+        return meta;
+    }
+
+    /**
+     * 紧凑编码（hash 布局的桶内 value）："userId|过期时间戳秒|longUrl"，无过期时间时中间段为空。
+     * 非默认重定向策略时在 longUrl 前多一段 "状态码:max-age"（规范化后的 longUrl 以协议名开头，不会以数字开头）。
+     * id 与 shortCode 可由桶内 field（短码）还原，不重复存储；longUrl 放在最后，本身含 '|' 也不影响解析
+     */
+    public String toCompactString() {
+        String expire = expireTime == null ? "" : String.valueOf(expireTime.atZone(ZoneId.systemDefault()).toEpochSecond());
+        String policy = redirectStatus == RedirectPolicyUtils.DEFAULT_STATUS && cacheMaxAge == 0
+                ? "" : redirectStatus + ":" + cacheMaxAge + "|";
+        return (userId == null ? "" : userId) + "|" + expire + "|" + policy + longUrl;
+    }
+
+    public static ShortLinkMeta fromCompactString(String shortCode, String value) {
+        int first = value.indexOf('|');
+        int second = value.indexOf('|', first + 1);
+        ShortLinkMeta meta = new ShortLinkMeta();
+        meta.setId(Base62Utils.decode(shortCode));
+        meta.setShortCode(shortCode);
+        if (first > 0) {
+            meta.setUserId(Long.parseLong(value.substring(0, first)));
+        }
+        if (second > first + 1) {
+            long epochSecond = Long.parseLong(value.substring(first + 1, second));
+            meta.setExpireTime(LocalDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), ZoneId.systemDefault()));
+        }
+        int urlStart = second + 1;
+        if (urlStart < value.length() && Character.isDigit(value.charAt(urlStart))) {
+            int colon = value.indexOf(':', urlStart);
+            int third = value.indexOf('|', colon + 1);
+            meta.setRedirectStatus(Integer.parseInt(value.substring(urlStart, colon)));
+            meta.setCacheMaxAge(Integer.parseInt(value.substring(colon + 1, third)));
+            urlStart = third + 1;
+        }
+        meta.setLongUrl(value.substring(urlStart));
+        return meta;
+    }
+
+    /**
+     * 在给定时间点是否已过期（未设置过期时间表示永久有效）
+     */
+    public boolean isExpiredAt(LocalDateTime now) {
+        return expireTime != null && expireTime.isBefore(now);
+    }
+}
@@ -0,0 +1,37 @@
+package com.neozeng.trackerserve.pojo;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 用户按小时汇总的点击量（预聚合表），维护方式同 {@link LinkHourlyStat}
+ * <p>
+ * 已有历史数据可一次性回填：
+ * INSERT INTO t_user_hourly_stat (user_id, stat_hour, clicks)
+ * SELECT user_id, DATE_FORMAT(create_time, '%Y-%m-%d %H:00:00'), COUNT(*)
+ * FROM t_visit_log WHERE user_id IS NOT NULL GROUP BY user_id, DATE_FORMAT(create_time, '%Y-%m-%d %H:00:00');
+ */
+@Data
+@Entity
+@Table(name = "t_user_hourly_stat", indexes = {
+        @Index(name = "uk_user_hour", columnList = "user_id, stat_hour", unique = true)
+})
+public class UserHourlyStat {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    /**
+     * 小时桶起点（服务器本地时间，分秒为 0）
+     */
+    @Column(name = "stat_hour", nullable = false)
+    private LocalDateTime statHour;
+
+    @Column(nullable = false)
+    private Long clicks;
+}
@@ -13,7 +13,10 @@ import java.time.LocalDateTime;
  * @date 2026/1/12 16:41
  */
 @Entity
-@Table(name = "t_visit_log") // 建议加上前缀，与短链接表 t_short_link 保持一致
+@Table(name = "t_visit_log", indexes = { // 建议加上前缀，与短链接表 t_short_link 保持一致
+        // 按用户分页查询访问记录（游标分页）：user_id 等值 + (create_time, id) 倒序扫描
+        @Index(name = "idx_user_time_id", columnList = "user_id, create_time, id")
+})
 @Data
 @Schema(description = "访问日志实体")
 public class VisitLog {
@@ -28,7 +31,7 @@ public class VisitLog {
     private Long userId;
 
     // 关联的短码
-    @Column(nullable = false, length = 20)
+    @Column(name = "short_code", nullable = false, length = 20)
     @Schema(description = "短链接码", example = "abc123")
     private String shortCode;
 
@@ -46,6 +49,7 @@ public class VisitLog {
     private String userAgent;
 
     // 访问时间
+    @Column(name = "create_time")
     @Schema(description = "访问时间", example = "2026-01-01 10:00:00")
     private LocalDateTime createTime;
 
@@ -0,0 +1,21 @@
+package com.neozeng.trackerserve.pojo.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量创建短链接的单条输入
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "批量创建短链接的单条输入")
+public class ShortLinkBatchItem {
+    @Schema(description = "原始链接", example = "https://www.example.com")
+    private String longUrl;
+
+    @Schema(description = "过期时间，可选，格式 yyyy-MM-dd HH:mm:ss", example = "2026-12-31 23:59:59")
+    private String expireDate;
+}
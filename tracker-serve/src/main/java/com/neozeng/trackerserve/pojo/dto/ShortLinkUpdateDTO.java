@@ -27,4 +27,10 @@ public class ShortLinkUpdateDTO {
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
     @Schema(description = "过期时间", example = "2026-12-31 23:59:59", requiredMode = Schema.RequiredMode.REQUIRED)
      private LocalDateTime expireTime;
+
+    @Schema(description = "重定向状态码（301/302/307/308），不传则保持不变", example = "302")
+    private Integer redirectType;
+
+    @Schema(description = "跳转响应允许浏览器 / CDN 缓存的秒数，0 表示不缓存，不传则保持不变", example = "0")
+    private Integer cacheMaxAge;
 }
\ No newline at end of file
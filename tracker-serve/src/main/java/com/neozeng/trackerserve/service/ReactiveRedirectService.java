@@ -0,0 +1,17 @@
+package com.neozeng.trackerserve.service;
+
+import com.neozeng.trackerserve.pojo.ShortLinkMeta;
+import reactor.core.publisher.Mono;
+
+/**
+ * 响应式短码解析（tracker.redirect.reactive.enabled=true 时启用）
+ */
+public interface ReactiveRedirectService {
+
+    /**
+     * 解析短码对应的元数据：布隆过滤器 -> 本地内存 -> Redis（非阻塞）-> 数据库（boundedElastic 线程）
+     * @param shortCode 短码
+     * @return 元数据，不存在时为空 Mono
+     */
+    Mono<ShortLinkMeta> resolve(String shortCode);
+}
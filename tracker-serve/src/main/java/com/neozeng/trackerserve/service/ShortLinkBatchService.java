@@ -0,0 +1,38 @@
+package com.neozeng.trackerserve.service;
+
+import com.neozeng.trackerserve.pojo.dto.ShortLinkBatchItem;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 短链接批量创建 / 文件导入服务
+ */
+public interface ShortLinkBatchService {
+
+    /**
+     * 批量创建短链接
+     * @return 与输入顺序一致的短码列表
+     */
+    List<String> createBatch(Long userId, List<ShortLinkBatchItem> items);
+
+    /**
+     * 提交 CSV 导入任务（每行：longUrl[,expireDate]），后台流式解析并分批写入
+     * @return 任务 ID，用于查询进度和下载结果
+     */
+    String startImport(Long userId, MultipartFile file) throws IOException;
+
+    /**
+     * 查询导入进度
+     * @return status / processed / created / failed / error 等字段，任务不存在或不属于该用户时返回 null
+     */
+    Map<String, String> getImportProgress(Long userId, String jobId);
+
+    /**
+     * 导入结果文件（每行：shortCode,longUrl），任务未完成或不存在时返回 null
+     */
+    Path getImportResult(Long userId, String jobId);
+}
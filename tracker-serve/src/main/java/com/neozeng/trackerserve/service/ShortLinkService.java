@@ -1,10 +1,13 @@
 package com.neozeng.trackerserve.service;
 
 import com.neozeng.trackerserve.pojo.ShortLink;
+import com.neozeng.trackerserve.pojo.ShortLinkMeta;
 import com.neozeng.trackerserve.pojo.dto.TopLinkItem;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author strive_qin
@@ -14,7 +17,15 @@ import java.util.List;
  */
 
 public interface ShortLinkService {
-     String createShortLink(String longUrl, String workspace, String expireDate) ;
+    /**
+     * 创建短链接
+     * @param dedup 是否去重（同一用户相同的规范化 URL 与有效期返回已有短码），为 null 时使用 tracker.dedup.enabled
+     * @param redirectType 重定向状态码（301/302/307/308），为 null 时使用 302
+     * @param cacheMaxAge  跳转响应允许缓存的秒数，为 null 时不允许缓存
+     * @return 短码
+     */
+    String createShortLink(String longUrl, String workspace, String expireDate, Boolean dedup,
+                           Integer redirectType, Integer cacheMaxAge);
 
     List<ShortLink> listShortLinks();
 
@@ -22,11 +33,30 @@ public interface ShortLinkService {
 
     String getRedirectUrl(String shortCode);
 
-    void incrementClicks(String shortCode);
+    /**
+     * 解析短码对应的元数据（布隆过滤器 -> 本地 L1 -> Redis -> 数据库）
+     * @param shortCode 短码
+     * @return 元数据，不存在时返回 null
+     */
+    ShortLinkMeta getShortLinkMeta(String shortCode);
+
+    /**
+     * 批量解析短码元数据：一次 Redis 往返，未命中的短码合并为一次 IN 查询回源
+     * @param shortCodes 短码集合
+     * @return 短码 -> 元数据，不存在的短码不在结果中
+     */
+    Map<String, ShortLinkMeta> getShortLinkMetas(Collection<String> shortCodes);
+
+    void incrementClicks(ShortLinkMeta meta);
 
-    void recordVisitLog(String shortCode, String ip, String userAgent);
+    void recordVisitLog(ShortLinkMeta meta, String ip, String userAgent);
 
-    boolean updateShortLink(Long id, String longUrl, LocalDateTime expireDate);
+    /**
+     * 更新短链接
+     * @param redirectType 重定向状态码，为 null 时保持不变
+     * @param cacheMaxAge  跳转响应允许缓存的秒数，为 null 时保持不变
+     */
+    boolean updateShortLink(Long id, String longUrl, LocalDateTime expireDate, Integer redirectType, Integer cacheMaxAge);
 
     List<TopLinkItem> getTopLinksRealTime(int limit);
 
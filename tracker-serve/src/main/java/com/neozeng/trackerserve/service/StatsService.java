@@ -0,0 +1,32 @@
+package com.neozeng.trackerserve.service;
+
+import com.neozeng.trackerserve.pojo.dto.ClickTrendItem;
+import com.neozeng.trackerserve.pojo.dto.TopLinkItem;
+
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * 统计分析服务
+ */
+public interface StatsService {
+
+    /**
+     * 点击量趋势，按天或按小时分桶，桶边界按调用方时区对齐
+     * @param userId      当前用户
+     * @param days        统计最近多少天（含今天）
+     * @param granularity 粒度：day / hour
+     * @param zone        调用方时区
+     * @param shortCode   只统计某个短码，为 null 时统计用户全部短链接
+     * @return 完整的时间序列（没有点击的桶为 0）
+     */
+    List<ClickTrendItem> getClickTrend(Long userId, int days, String granularity, ZoneId zone, String shortCode);
+
+    /**
+     * 最近 N 天内点击量最高的短链接（读取小时预聚合表）
+     * @param userId 当前用户
+     * @param days   时间窗口（天）
+     * @param limit  返回数量
+     */
+    List<TopLinkItem> getTopLinks(Long userId, int days, int limit);
+}
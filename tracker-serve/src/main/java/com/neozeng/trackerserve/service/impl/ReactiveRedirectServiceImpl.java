@@ -0,0 +1,102 @@
+package com.neozeng.trackerserve.service.impl;
+
+import cn.hutool.json.JSONUtil;
+import com.neozeng.trackerserve.pojo.ShortLinkMeta;
+import com.neozeng.trackerserve.service.ReactiveRedirectService;
+import com.neozeng.trackerserve.service.ShortLinkService;
+import com.neozeng.trackerserve.util.CacheClient;
+import com.neozeng.trackerserve.util.LinkCacheLayout;
+import com.neozeng.trackerserve.util.ShortCodeBloomFilter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+/**
+ * 响应式短码解析
+ * <p>
+ * 与 {@link ShortLinkServiceImpl#getShortLinkMeta} 共用同一套缓存：布隆过滤器、钉住的热点与 L1、
+ * 相同的 Redis key / 桶布局与编码。区别只在 L1 未命中时用 Lettuce 的响应式 API 读取 Redis，
+ * 等待期间不占用线程；Redis 也未命中（或 hash 布局下需要兼容旧 key）时，
+ * 在 boundedElastic 线程上调用阻塞的 getShortLinkMeta 完成回源，单飞合并、空值标记、
+ * MySQL 并发许可与缓存回填都沿用原有逻辑。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "tracker.redirect.reactive.enabled", havingValue = "true")
+public class ReactiveRedirectServiceImpl implements ReactiveRedirectService {
+
+    /**
+     * 空值标记：Redis 中缓存了“不存在”，不再回源
+     */
+    private static final ShortLinkMeta NOT_FOUND = new ShortLinkMeta();
+
+    private final ReactiveStringRedisTemplate reactiveStringRedisTemplate;
+    private final ShortLinkService shortLinkService;
+    private final CacheClient cacheClient;
+    private final LinkCacheLayout linkCacheLayout;
+    private final ShortCodeBloomFilter shortCodeBloomFilter;
+
+    /**
+     * 单次 Redis 读取的超时时间，超时按错误处理（返回 503）
+     */
+    @Value("${tracker.redirect.reactive.redis-timeout-ms:500}")
+    private long redisTimeoutMs;
+
+    @Override
+    public Mono<ShortLinkMeta> resolve(String shortCode) {
+        if (!shortCodeBloomFilter.mightContain(shortCode)) {
+            return Mono.empty();
+        }
+        String localKey = linkCacheLayout.metaKey(shortCode);
+        Object local = cacheClient.getLocal(localKey);
+        if (local instanceof ShortLinkMeta meta) {
+            return Mono.just(meta);
+        }
+        Mono<ShortLinkMeta> remote = linkCacheLayout.isHashLayout()
+                ? readBucket(shortCode)
+                : readString(localKey);
+        return remote
+                .timeout(Duration.ofMillis(redisTimeoutMs))
+                .doOnNext(meta -> {
+                    if (meta != NOT_FOUND) {
+                        cacheClient.putLocal(localKey, meta);
+                    }
+                })
+                .switchIfEmpty(Mono.fromCallable(() -> shortLinkService.getShortLinkMeta(shortCode))
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .filter(meta -> meta != NOT_FOUND);
+    }
+
+    /**
+     * string 布局：GET JSON；空字符串为空值标记
+     */
+    private Mono<ShortLinkMeta> readString(String key) {
+        return reactiveStringRedisTemplate.opsForValue().get(key)
+                .map(json -> json.isEmpty() ? NOT_FOUND : JSONUtil.toBean(json, ShortLinkMeta.class));
+    }
+
+    /**
+     * hash 布局：HGET 桶内 field，读原始字节以识别压缩值；桶内未命中交给阻塞路径（兼容旧 key 与空值标记）
+     */
+    private Mono<ShortLinkMeta> readBucket(String shortCode) {
+        ByteBuffer key = ByteBuffer.wrap(linkCacheLayout.metaBucketKey(shortCode).getBytes(StandardCharsets.UTF_8));
+        ByteBuffer field = ByteBuffer.wrap(shortCode.getBytes(StandardCharsets.UTF_8));
+        return reactiveStringRedisTemplate.execute(connection -> connection.hashCommands().hGet(key, field))
+                .next()
+                .map(buffer -> {
+                    byte[] raw = new byte[buffer.remaining()];
+                    buffer.get(raw);
+                    return ShortLinkMeta.fromCompactString(shortCode, cacheClient.decodeValue(raw));
+                });
+    }
+}
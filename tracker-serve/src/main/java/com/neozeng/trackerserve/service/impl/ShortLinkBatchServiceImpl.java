@@ -0,0 +1,404 @@
+package com.neozeng.trackerserve.service.impl;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import com.neozeng.trackerserve.pojo.ShortLinkMeta;
+import com.neozeng.trackerserve.pojo.dto.ShortLinkBatchItem;
+import com.neozeng.trackerserve.service.ShortLinkBatchService;
+import com.neozeng.trackerserve.util.Base62Utils;
+import com.neozeng.trackerserve.exception.DownstreamBusyException;
+import com.neozeng.trackerserve.util.BoundedExecutor;
+import com.neozeng.trackerserve.util.CacheClient;
+import com.neozeng.trackerserve.util.ExecutorRegistry;
+import com.neozeng.trackerserve.util.LinkCacheLayout;
+import com.neozeng.trackerserve.util.RedisConstants;
+import com.neozeng.trackerserve.util.SegmentIdGenerator;
+import com.neozeng.trackerserve.util.ShortCodeBloomFilter;
+import com.neozeng.trackerserve.util.UrlUtils;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 短链接批量创建 / 文件导入
+ * 每批：号段分配 ID 并算出短码 -> 一条多行 INSERT -> 一次管道预热元数据缓存 -> 批量写入布隆过滤器，
+ * 不经过 JPA，也没有逐条的事务和 Redis 往返。
+ * 导入任务在后台线程中逐行读取文件，进度写入 Redis Hash（{@link RedisConstants#SHORT_LINK_IMPORT_KEY}），
+ * 结果（shortCode,longUrl）写入本地结果文件供下载；结果文件与进度 Hash 同样保留
+ * {@link RedisConstants#SHORT_LINK_IMPORT_TTL} 小时，由定时任务清理。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ShortLinkBatchServiceImpl implements ShortLinkBatchService {
+
+    private static final DateTimeFormatter EXPIRE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String INSERT_PREFIX =
+            "INSERT INTO t_short_link (id, user_id, long_url, url_hash, short_code, total_clicks, expire_time, create_time) VALUES ";
+    private static final String ROW_PLACEHOLDER = "(?, ?, ?, ?, ?, ?, ?, ?)";
+
+    public static final String STATUS_RUNNING = "RUNNING";
+    public static final String STATUS_DONE = "DONE";
+    public static final String STATUS_FAILED = "FAILED";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final StringRedisTemplate stringRedisTemplate;
+    private final SegmentIdGenerator segmentIdGenerator;
+    private final CacheClient cacheClient;
+    private final ShortCodeBloomFilter shortCodeBloomFilter;
+    private final LinkCacheLayout linkCacheLayout;
+    private final ExecutorRegistry executorRegistry;
+
+    /**
+     * 每条多行 INSERT 的行数
+     */
+    @Value("${tracker.import.batch-size:1000}")
+    private int batchSize;
+
+    /**
+     * 导入文件与结果文件的存放目录
+     */
+    @Value("${tracker.import.work-dir:${java.io.tmpdir}/tracker-import}")
+    private String workDir;
+
+    /**
+     * 导入任务执行器：排队已满时直接拒绝新的导入请求，而不是无限堆积
+     */
+    private BoundedExecutor importExecutor;
+
+    @PostConstruct
+    public void initExecutor() {
+        importExecutor = executorRegistry.create("link-import", 2, 16, BoundedExecutor.RejectPolicy.ABORT);
+    }
+
+    @Override
+    public List<String> createBatch(Long userId, List<ShortLinkBatchItem> items) {
+        List<String> shortCodes = new ArrayList<>(items.size());
+        for (int from = 0; from < items.size(); from += batchSize) {
+            List<ShortLinkBatchItem> chunk = items.subList(from, Math.min(items.size(), from + batchSize));
+            for (ShortLinkMeta meta : insertChunk(userId, chunk)) {
+                shortCodes.add(meta.getShortCode());
+            }
+        }
+        log.info("批量创建短链接完成: userId={}, 数量={}", userId, shortCodes.size());
+        return shortCodes;
+    }
+
+    @Override
+    public String startImport(Long userId, MultipartFile file) throws IOException {
+        String jobId = IdUtil.fastSimpleUUID();
+        Path dir = Paths.get(workDir);
+        Files.createDirectories(dir);
+        Path input = dir.resolve(jobId + ".csv");
+        // 请求结束后上传的临时文件会被清理，先转存到工作目录
+        file.transferTo(input);
+
+        Map<String, String> progress = new HashMap<>();
+        progress.put("userId", String.valueOf(userId));
+        progress.put("fileName", StrUtil.blankToDefault(file.getOriginalFilename(), "import.csv"));
+        progress.put("status", STATUS_RUNNING);
+        progress.put("processed", "0");
+        progress.put("created", "0");
+        progress.put("failed", "0");
+        progress.put("startTime", LocalDateTime.now().format(EXPIRE_FORMATTER));
+        String key = RedisConstants.SHORT_LINK_IMPORT_KEY + jobId;
+        stringRedisTemplate.opsForHash().putAll(key, progress);
+        stringRedisTemplate.expire(key, RedisConstants.SHORT_LINK_IMPORT_TTL, TimeUnit.HOURS);
+
+        try {
+            importExecutor.submit(() -> runImport(userId, jobId, input));
+        } catch (RejectedExecutionException e) {
+            stringRedisTemplate.delete(key);
+            Files.deleteIfExists(input);
+            throw new DownstreamBusyException("导入任务排队已满，请稍后重试");
+        }
+        return jobId;
+    }
+
+    @Override
+    public Map<String, String> getImportProgress(Long userId, String jobId) {
+        Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(RedisConstants.SHORT_LINK_IMPORT_KEY + jobId);
+        if (entries.isEmpty() || !String.valueOf(userId).equals(entries.get("userId"))) {
+            return null;
+        }
+        Map<String, String> progress = new HashMap<>();
+        entries.forEach((k, v) -> progress.put((String) k, (String) v));
+        progress.remove("userId");
+        return progress;
+    }
+
+    @Override
+    public Path getImportResult(Long userId, String jobId) {
+        Map<String, String> progress = getImportProgress(userId, jobId);
+        if (progress == null || STATUS_RUNNING.equals(progress.get("status"))) {
+            return null;
+        }
+        Path result = Paths.get(workDir).resolve(jobId + ".result.csv");
+        return Files.isRegularFile(result) ? result : null;
+    }
+
+    /**
+     * 逐行读取导入文件，攒够一批写入一次，每批结束后更新进度
+     */
+    private void runImport(Long userId, String jobId, Path input) {
+        String key = RedisConstants.SHORT_LINK_IMPORT_KEY + jobId;
+        Path resultFile = input.resolveSibling(jobId + ".result.csv");
+        long processed = 0;
+        long created = 0;
+        long failed = 0;
+        String lastError = null;
+        long start = System.currentTimeMillis();
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8);
+             BufferedWriter writer = Files.newBufferedWriter(resultFile, StandardCharsets.UTF_8)) {
+            writer.write("shortCode,longUrl");
+            writer.newLine();
+            List<ShortLinkBatchItem> chunk = new ArrayList<>(batchSize);
+            String line;
+            long lineNo = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank() || (lineNo == 1 && StrUtil.startWithIgnoreCase(line.trim(), "longUrl"))) {
+                    continue;
+                }
+                processed++;
+                ShortLinkBatchItem item = parseLine(line);
+                if (item == null) {
+                    failed++;
+                    lastError = "第 " + lineNo + " 行格式错误";
+                    continue;
+                }
+                chunk.add(item);
+                if (chunk.size() >= batchSize) {
+                    try {
+                        created += writeChunk(userId, chunk, writer);
+                    } catch (Exception e) {
+                        failed += chunk.size();
+                        lastError = e.getMessage();
+                        log.error("导入任务 {} 写入一批短链接失败: {} 条", jobId, chunk.size(), e);
+                    }
+                    chunk.clear();
+                    updateProgress(key, processed, created, failed, lastError);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                try {
+                    created += writeChunk(userId, chunk, writer);
+                } catch (Exception e) {
+                    failed += chunk.size();
+                    lastError = e.getMessage();
+                    log.error("导入任务 {} 写入一批短链接失败: {} 条", jobId, chunk.size(), e);
+                }
+            }
+            updateProgress(key, processed, created, failed, lastError);
+            stringRedisTemplate.opsForHash().put(key, "status", STATUS_DONE);
+            log.info("导入任务 {} 完成: 处理 {} 行, 成功 {}, 失败 {}, 耗时 {}ms",
+                    jobId, processed, created, failed, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.error("导入任务 {} 异常终止", jobId, e);
+            updateProgress(key, processed, created, failed, e.getMessage());
+            stringRedisTemplate.opsForHash().put(key, "status", STATUS_FAILED);
+        } finally {
+            stringRedisTemplate.opsForHash().put(key, "endTime", LocalDateTime.now().format(EXPIRE_FORMATTER));
+            try {
+                Files.deleteIfExists(input);
+            } catch (IOException e) {
+                log.warn("删除导入文件失败: {}", input);
+            }
+        }
+    }
+
+    private int writeChunk(Long userId, List<ShortLinkBatchItem> chunk, BufferedWriter writer) throws IOException {
+        List<ShortLinkMeta> metas = insertChunk(userId, chunk);
+        for (ShortLinkMeta meta : metas) {
+            writer.write(meta.getShortCode());
+            writer.write(',');
+            // URL 可能含逗号，按 parseLine 的约定加引号
+            writer.write(quote(meta.getLongUrl()));
+            writer.newLine();
+        }
+        return metas.size();
+    }
+
+    private void updateProgress(String key, long processed, long created, long failed, String lastError) {
+        Map<String, String> progress = new HashMap<>();
+        progress.put("processed", String.valueOf(processed));
+        progress.put("created", String.valueOf(created));
+        progress.put("failed", String.valueOf(failed));
+        if (lastError != null) {
+            progress.put("error", lastError);
+        }
+        stringRedisTemplate.opsForHash().putAll(key, progress);
+    }
+
+    /**
+     * 定时清理工作目录：删除超过进度 Hash 有效期的结果文件，以及异常停机遗留的导入文件
+     * 进度过期后结果已无法下载（getImportResult 先校验进度），文件留着只会占用磁盘
+     */
+    @Scheduled(fixedDelayString = "${tracker.import.cleanup-interval-ms:3600000}")
+    public void cleanupWorkDir() {
+        Path dir = Paths.get(workDir);
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(RedisConstants.SHORT_LINK_IMPORT_TTL);
+        int deleted = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.csv")) {
+            for (Path file : files) {
+                try {
+                    if (Files.getLastModifiedTime(file).toMillis() < cutoff && Files.deleteIfExists(file)) {
+                        deleted++;
+                    }
+                } catch (IOException e) {
+                    log.warn("删除过期导入文件失败: {}", file);
+                }
+            }
+        } catch (IOException e) {
+            log.warn("扫描导入工作目录失败: {}", dir, e);
+        }
+        if (deleted > 0) {
+            log.info("已清理 {} 个过期导入文件", deleted);
+        }
+    }
+
+    /**
+     * 写入一批短链接：一条多行 INSERT + 一次管道预热缓存 + 批量写布隆过滤器
+     */
+    private List<ShortLinkMeta> insertChunk(Long userId, List<ShortLinkBatchItem> chunk) {
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp createTime = Timestamp.valueOf(now);
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + chunk.size() * (ROW_PLACEHOLDER.length() + 1));
+        sql.append(INSERT_PREFIX);
+        Object[] args = new Object[chunk.size() * 8];
+        List<ShortLinkMeta> metas = new ArrayList<>(chunk.size());
+        int i = 0;
+        for (ShortLinkBatchItem item : chunk) {
+            long id = segmentIdGenerator.nextId();
+            LocalDateTime expireTime = StrUtil.isBlank(item.getExpireDate())
+                    ? null : LocalDateTime.parse(item.getExpireDate().trim(), EXPIRE_FORMATTER);
+            String longUrl = item.getLongUrl().trim();
+
+            ShortLinkMeta meta = new ShortLinkMeta();
+            meta.setId(id);
+            meta.setShortCode(Base62Utils.encode(id));
+            meta.setUserId(userId);
+            meta.setExpireTime(expireTime);
+            // 与单条创建一致：缓存中保存规范化后的跳转地址
+            meta.setLongUrl(UrlUtils.normalizeUrl(longUrl));
+            metas.add(meta);
+
+            if (i > 0) {
+                sql.append(',');
+            }
+            sql.append(ROW_PLACEHOLDER);
+            args[i++] = id;
+            args[i++] = userId;
+            args[i++] = longUrl;
+            args[i++] = UrlUtils.hashUrl(longUrl);
+            args[i++] = meta.getShortCode();
+            args[i++] = 0;
+            args[i++] = expireTime != null ? Timestamp.valueOf(expireTime) : null;
+            args[i++] = createTime;
+        }
+        jdbcTemplate.update(sql.toString(), args);
+
+        List<String> shortCodes = new ArrayList<>(metas.size());
+        for (ShortLinkMeta meta : metas) {
+            shortCodes.add(meta.getShortCode());
+        }
+        shortCodeBloomFilter.addAll(shortCodes);
+        warmCache(metas);
+        return metas;
+    }
+
+    /**
+     * 按当前存储布局一次管道预热整批元数据；hash 布局下连续 ID 落在少数几个桶里
+     */
+    private void warmCache(List<ShortLinkMeta> metas) {
+        if (linkCacheLayout.isHashLayout()) {
+            Map<String, Map<String, String>> buckets = new HashMap<>();
+            for (ShortLinkMeta meta : metas) {
+                buckets.computeIfAbsent(linkCacheLayout.metaBucketKey(meta.getShortCode()), k -> new HashMap<>())
+                        .put(meta.getShortCode(), meta.toCompactString());
+            }
+            cacheClient.hashSetBatch(buckets, RedisConstants.SHORT_LINK_CACHE_TTL, TimeUnit.HOURS);
+            return;
+        }
+        Map<String, ShortLinkMeta> cacheEntries = new HashMap<>(metas.size() * 2);
+        for (ShortLinkMeta meta : metas) {
+            cacheEntries.put(RedisConstants.SHORT_LINK_CACHE_KEY + meta.getShortCode(), meta);
+        }
+        cacheClient.setBatch(cacheEntries, RedisConstants.SHORT_LINK_CACHE_TTL, TimeUnit.HOURS);
+    }
+
+    /**
+     * 解析一行 CSV：longUrl[,expireDate]；URL 中可能含逗号，只有最后一列能解析为时间时才视为过期时间
+     * @return 格式错误时返回 null
+     */
+    static ShortLinkBatchItem parseLine(String line) {
+        String value = line.trim();
+        String expireDate = null;
+        int comma = value.lastIndexOf(',');
+        if (comma > 0) {
+            String tail = unquote(value.substring(comma + 1));
+            if (tail.isEmpty()) {
+                value = value.substring(0, comma);
+            } else {
+                try {
+                    LocalDateTime.parse(tail, EXPIRE_FORMATTER);
+                    expireDate = tail;
+                    value = value.substring(0, comma);
+                } catch (DateTimeParseException ignored) {
+                    // 最后一列不是时间，整行都是 URL
+                }
+            }
+        }
+        String longUrl = unquote(value);
+        if (longUrl.isEmpty()) {
+            return null;
+        }
+        return new ShortLinkBatchItem(longUrl, expireDate);
+    }
+
+    /**
+     * 去掉外层引号，并把 CSV 转义的 "" 还原为 "
+     */
+    private static String unquote(String value) {
+        String trimmed = value.trim();
+        if (trimmed.length() >= 2 && trimmed.startsWith("\"") && trimmed.endsWith("\"")) {
+            return trimmed.substring(1, trimmed.length() - 1).replace("\"\"", "\"").trim();
+        }
+        return trimmed;
+    }
+
+    /**
+     * 按 CSV 规则给字段加引号（内部的 " 写成 ""），与 {@link #unquote} 对应
+     */
+    static String quote(String value) {
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
@@ -2,10 +2,9 @@ package com.neozeng.trackerserve.service.impl;
 
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.json.JSONUtil;
 import com.neozeng.trackerserve.mapper.ShortLinkMapper;
-import com.neozeng.trackerserve.mapper.VisitLogMapper;
 import com.neozeng.trackerserve.pojo.ShortLink;
+import com.neozeng.trackerserve.pojo.ShortLinkMeta;
 import com.neozeng.trackerserve.pojo.User;
 import com.neozeng.trackerserve.pojo.VisitLog;
 import com.neozeng.trackerserve.pojo.dto.TopLinkItem;
@@ -13,23 +12,53 @@ import com.neozeng.trackerserve.service.ShortLinkService;
 import com.neozeng.trackerserve.exception.UnAuthorizedException;
 import com.neozeng.trackerserve.util.Base62Utils;
 import com.neozeng.trackerserve.util.CacheClient;
+import com.neozeng.trackerserve.util.BoundedExecutor;
+import com.neozeng.trackerserve.util.ClickAggregator;
+import com.neozeng.trackerserve.util.DownstreamLimiter;
+import com.neozeng.trackerserve.util.ExecutorRegistry;
 import com.neozeng.trackerserve.util.IpLocationUtils;
+import com.neozeng.trackerserve.util.LinkCacheLayout;
+import com.neozeng.trackerserve.util.RedirectPolicyUtils;
+import com.neozeng.trackerserve.util.RedisConstants;
+import com.neozeng.trackerserve.util.SegmentIdGenerator;
+import com.neozeng.trackerserve.util.ShortCodeBloomFilter;
+import com.neozeng.trackerserve.util.UrlUtils;
+import com.neozeng.trackerserve.util.VisitLogSpillStore;
+import com.neozeng.trackerserve.util.VisitLogWriter;
 import com.neozeng.trackerserve.util.UserHolder;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.connection.zset.DefaultTuple;
+import org.springframework.data.redis.connection.zset.Tuple;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.ZSetOperations;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
 /**
@@ -43,9 +72,76 @@ import java.util.stream.Collectors;
 @Service
 public class ShortLinkServiceImpl implements ShortLinkService {
     private final ShortLinkMapper shortLinkMapper;
-    private final VisitLogMapper visitLogMapper;
     private final CacheClient cacheClient;
     private final StringRedisTemplate redisTemplate;
+    private final ShortCodeBloomFilter shortCodeBloomFilter;
+    private final ClickAggregator clickAggregator;
+    private final VisitLogWriter visitLogWriter;
+    private final SegmentIdGenerator segmentIdGenerator;
+    private final EntityManager entityManager;
+    private final LinkCacheLayout linkCacheLayout;
+    private final DownstreamLimiter downstreamLimiter;
+    private final ExecutorRegistry executorRegistry;
+    private final VisitLogSpillStore visitLogSpillStore;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 是否默认开启长链接去重（创建请求可通过 dedup 参数覆盖）
+     */
+    @Value("${tracker.dedup.enabled:false}")
+    private boolean dedupEnabled;
+
+    /**
+     * 列表接口每次 MGET / 管道读取的短码数
+     */
+    @Value("${tracker.clicks.read-batch-size:500}")
+    private int clickReadBatchSize;
+
+    /**
+     * 全局排行榜为空时，后台从数据库重建的条目数
+     */
+    @Value("${tracker.ranking.global-rebuild-size:1000}")
+    private int globalRankingRebuildSize;
+
+    /**
+     * 重建时每条 ZADD 携带的成员数
+     */
+    @Value("${tracker.ranking.rebuild-batch-size:500}")
+    private int rankingRebuildBatchSize;
+
+    /**
+     * 访问日志后台执行器：默认队列满时丢弃（只损失访问日志的完整性），可配置为 spill 溢出到本地文件
+     */
+    private BoundedExecutor visitLogExecutor;
+
+    /**
+     * 全局排行榜重建执行器：单线程、队列为 1，重建期间的重复触发直接丢弃
+     */
+    private BoundedExecutor rankingRebuildExecutor;
+    private final AtomicBoolean globalRankingRebuilding = new AtomicBoolean(false);
+
+    /**
+     * 服务端实际处理的跳转次数，按是否可缓存区分；cacheable=true 的链接有部分访问被浏览器 / CDN 直接复用，点击量偏少
+     */
+    private Counter cacheableRedirectCounter;
+    private Counter uncachedRedirectCounter;
+
+    @PostConstruct
+    public void init() {
+        visitLogExecutor = executorRegistry.create("visit-log", 2, 10000, BoundedExecutor.RejectPolicy.DROP,
+                task -> task instanceof VisitLogTask visitLogTask && visitLogSpillStore.append(visitLogTask.visitLog));
+        rankingRebuildExecutor = executorRegistry.create("ranking-rebuild", 1, 1, BoundedExecutor.RejectPolicy.DROP);
+        cacheableRedirectCounter = redirectCounter(true);
+        uncachedRedirectCounter = redirectCounter(false);
+    }
+
+    private Counter redirectCounter(boolean cacheable) {
+        return Counter.builder("shortlink.redirect")
+                .description("服务端处理的短链接跳转次数（cacheable=true 表示该链接允许浏览器 / CDN 缓存跳转）")
+                .tag("cacheable", String.valueOf(cacheable))
+                .register(meterRegistry);
+    }
+
     /**
      * @param longUrl
      * @param workspace
@@ -53,7 +149,8 @@ public class ShortLinkServiceImpl implements ShortLinkService {
      */
     @Override
     @Transactional
-    public String createShortLink(String longUrl, String workspace, String expireDate) {
+    public String createShortLink(String longUrl, String workspace, String expireDate, Boolean dedup,
+                                  Integer redirectType, Integer cacheMaxAge) {
         log.info("=== 开始生成短链接 ===");
         User user = UserHolder.getUser();
 
@@ -61,36 +158,88 @@ public class ShortLinkServiceImpl implements ShortLinkService {
             throw new RuntimeException("请先登录后操作");
         }
 
-        // 1. 填充并保存初始对象获取 ID
-        ShortLink link = new ShortLink();
-        link.setLongUrl(longUrl);
-        link.setUserId(user.getId());
-        link.setTotalClicks(0);
+        LocalDateTime expireTime = null;
         if (expireDate != null && !expireDate.isEmpty()) {
             DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-            link.setExpireTime(LocalDateTime.parse(expireDate, formatter));
+            expireTime = LocalDateTime.parse(expireDate, formatter);
+        }
+        String urlHash = UrlUtils.hashUrl(longUrl);
+
+        // 0. 去重模式：同一用户、规范化后相同的 URL、相同的有效期与重定向策略，直接返回已有短码
+        if (dedup != null ? dedup : dedupEnabled) {
+            ShortLink existing = findDuplicate(user.getId(), longUrl, urlHash, expireTime, redirectType, cacheMaxAge);
+            if (existing != null) {
+                log.info("命中去重，返回已有短链接: {} -> {}", existing.getShortCode(), longUrl);
+                return existing.getShortCode();
+            }
         }
-        link.setCreateTime(LocalDateTime.now());
-        shortLinkMapper.save(link); // 第一次保存，获取自增 ID
 
-        // 2. 转换为短码并更新数据库
-        String shortCode = Base62Utils.encode(link.getId());
+        // 1. 从号段中取 ID 并直接算出短码，整个创建只有一次 INSERT
+        long id = segmentIdGenerator.nextId();
+        String shortCode = Base62Utils.encode(id);
+        ShortLink link = new ShortLink();
+        link.setId(id);
         link.setShortCode(shortCode);
-        shortLinkMapper.save(link); // 第二次保存，更新短码字段
+        link.setLongUrl(longUrl);
+        link.setUrlHash(urlHash);
+        link.setUserId(user.getId());
+        link.setTotalClicks(0);
+        link.setExpireTime(expireTime);
+        link.setCreateTime(LocalDateTime.now());
+        link.setRedirectType(redirectType);
+        link.setCacheMaxAge(cacheMaxAge);
+        // ID 已手动赋值，save() 会先 SELECT 再 merge，这里直接 persist
+        entityManager.persist(link);
+        shortCodeBloomFilter.add(shortCode);
 
-        // 3. 💡 关键：在数据库事务即将提交前预热缓存
+        // 2. 💡 关键：在数据库事务即将提交前预热缓存
         // 这样可以确保：只要缓存里有，数据库里一定有
-        cacheClient.set(
-                "shortLink:cache:" + shortCode,
-                JSONUtil.toJsonStr(longUrl),
-                24L,
-                TimeUnit.HOURS
-        );
+        ShortLinkMeta meta = ShortLinkMeta.from(link);
+        if (linkCacheLayout.isHashLayout()) {
+            cacheClient.hashSet(linkCacheLayout.metaBucketKey(shortCode), shortCode, meta.toCompactString(),
+                    RedisConstants.SHORT_LINK_CACHE_TTL, TimeUnit.HOURS);
+        } else {
+            cacheClient.set(
+                    RedisConstants.SHORT_LINK_CACHE_KEY + shortCode,
+                    meta,
+                    RedisConstants.SHORT_LINK_CACHE_TTL,
+                    TimeUnit.HOURS
+            );
+        }
 
         log.info("短链接创建成功并已预热缓存: {} -> {}", shortCode, longUrl);
         return shortCode;
     }
 
+    /**
+     * 查找可复用的已有短链接：哈希命中后再比对规范化 URL，且有效期、重定向策略一致、尚未过期
+     */
+    private ShortLink findDuplicate(Long userId, String longUrl, String urlHash, LocalDateTime expireTime,
+                                    Integer redirectType, Integer cacheMaxAge) {
+        if (urlHash == null) {
+            return null;
+        }
+        String canonical = UrlUtils.canonicalizeUrl(longUrl);
+        LocalDateTime now = LocalDateTime.now();
+        for (ShortLink candidate : shortLinkMapper.findByUserIdAndUrlHash(userId, urlHash)) {
+            if (!canonical.equals(UrlUtils.canonicalizeUrl(candidate.getLongUrl()))) {
+                continue;
+            }
+            if (!Objects.equals(candidate.getExpireTime(), expireTime)) {
+                continue;
+            }
+            if (RedirectPolicyUtils.statusOrDefault(candidate.getRedirectType()) != RedirectPolicyUtils.statusOrDefault(redirectType)
+                    || RedirectPolicyUtils.maxAgeOrDefault(candidate.getCacheMaxAge()) != RedirectPolicyUtils.maxAgeOrDefault(cacheMaxAge)) {
+                continue;
+            }
+            if (candidate.getExpireTime() != null && candidate.getExpireTime().isBefore(now)) {
+                continue;
+            }
+            return candidate;
+        }
+        return null;
+    }
+
 
     /**
      * 获取短链接列表（实时合并 Redis 点击量）
@@ -120,16 +269,14 @@ public class ShortLinkServiceImpl implements ShortLinkService {
         // 1. 从数据库获取当前用户的原始记录
         List<ShortLink> list = shortLinkMapper.findByUserId(userId);
 
-        // 2. 遍历列表，将 Redis 中的“增量点击量”累加到对象中
+        // 2. 分批读取 Redis 中的“增量点击量”并累加到对象中，往返次数只与批数相关
+        List<String> shortCodes = list.stream().map(ShortLink::getShortCode).collect(Collectors.toList());
+        Map<String, String> deltas = fetchClickDeltas(shortCodes);
         for (ShortLink link : list) {
-            // 💡 关键：Key 必须与 incrementClicks 方法中的 "shortLink:clicks:" 保持一致
-            String redisKey = "shortLink:clicks:" + link.getShortCode();
-            String redisValue = redisTemplate.opsForValue().get(redisKey);
-
+            String redisValue = deltas.get(link.getShortCode());
             if (StrUtil.isNotBlank(redisValue)) {
                 try {
                     // 将 Redis 里的增量数值加到数据库查询出的总量上
-                    assert redisValue != null;
                     long extraClicks = Long.parseLong(redisValue);
                     link.setTotalClicks(link.getTotalClicks() + (int) extraClicks);
                 } catch (NumberFormatException e) {
@@ -141,6 +288,63 @@ public class ShortLinkServiceImpl implements ShortLinkService {
         return list;
     }
 
+    /**
+     * 批量读取短码在 Redis 中尚未入库的点击增量，每 clickReadBatchSize 个短码一次往返
+     * string 布局：每批一条 MGET；hash 布局：每批按桶分组，一次管道发送各桶的 HMGET。
+     * 💡 Key 必须与 ClickAggregator 刷出时使用的布局保持一致
+     * @return 短码 -> 增量字符串（没有增量的短码不在结果中）
+     */
+    private Map<String, String> fetchClickDeltas(List<String> shortCodes) {
+        Map<String, String> result = new HashMap<>(shortCodes.size() * 2);
+        boolean hashLayout = linkCacheLayout.isHashLayout();
+        for (int from = 0; from < shortCodes.size(); from += clickReadBatchSize) {
+            List<String> chunk = shortCodes.subList(from, Math.min(from + clickReadBatchSize, shortCodes.size()));
+            if (hashLayout) {
+                fetchBucketedClickDeltas(chunk, result);
+                continue;
+            }
+            List<String> keys = chunk.stream().map(linkCacheLayout::clicksKey).collect(Collectors.toList());
+            List<String> values = redisTemplate.opsForValue().multiGet(keys);
+            if (values == null) {
+                continue;
+            }
+            for (int i = 0; i < chunk.size(); i++) {
+                if (values.get(i) != null) {
+                    result.put(chunk.get(i), values.get(i));
+                }
+            }
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void fetchBucketedClickDeltas(List<String> chunk, Map<String, String> result) {
+        Map<String, List<String>> byBucket = new LinkedHashMap<>();
+        for (String shortCode : chunk) {
+            byBucket.computeIfAbsent(linkCacheLayout.clicksKey(shortCode), k -> new ArrayList<>()).add(shortCode);
+        }
+        List<String> bucketKeys = new ArrayList<>(byBucket.keySet());
+        List<Object> replies = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String bucketKey : bucketKeys) {
+                byte[][] fields = byBucket.get(bucketKey).stream()
+                        .map(code -> code.getBytes(StandardCharsets.UTF_8))
+                        .toArray(byte[][]::new);
+                connection.hashCommands().hMGet(bucketKey.getBytes(StandardCharsets.UTF_8), fields);
+            }
+            return null;
+        });
+        for (int i = 0; i < bucketKeys.size(); i++) {
+            List<String> codes = byBucket.get(bucketKeys.get(i));
+            List<Object> values = (List<Object>) replies.get(i);
+            for (int j = 0; j < codes.size(); j++) {
+                Object value = values.get(j);
+                if (value != null) {
+                    result.put(codes.get(j), value.toString());
+                }
+            }
+        }
+    }
+
     /**
      * 游客模式下返回的示例短链接列表（仅展示用途，不落库）
      */
@@ -179,120 +383,212 @@ public class ShortLinkServiceImpl implements ShortLinkService {
 
     @Override
     public void deleteShortLink(Long id) {
+        ShortLink shortLink = shortLinkMapper.findById(id).orElse(null);
+        if (shortLink == null) {
+            return;
+        }
         shortLinkMapper.deleteById(id);
-
+        // 删除后清理两级缓存并广播，避免其他节点继续跳转到已删除的链接
+        evictMeta(shortLink.getShortCode());
     }
 
     /**
-     * 获取原始链接
+     * 获取原始链接（已规范化）
      * @param shortCode
      * @return
      */
     @Override
     public String getRedirectUrl(String shortCode) {
-        return cacheClient.queryWithPassThrough(
-                "shortLink:cache:",
+        ShortLinkMeta meta = getShortLinkMeta(shortCode);
+        return meta != null ? meta.getLongUrl() : null;
+    }
+
+    /**
+     * 获取短链接元数据（本地 L1 -> Redis -> 数据库）
+     * @param shortCode
+     * @return
+     */
+    @Override
+    public ShortLinkMeta getShortLinkMeta(String shortCode) {
+        // 布隆过滤器判定不存在的短码直接返回，不访问 Redis 和数据库
+        if (!shortCodeBloomFilter.mightContain(shortCode)) {
+            log.debug("短码 {} 未通过布隆过滤器，直接返回不存在", shortCode);
+            return null;
+        }
+        if (linkCacheLayout.isHashLayout()) {
+            return cacheClient.queryHashWithMultiLevel(
+                    linkCacheLayout.metaKey(shortCode),
+                    linkCacheLayout.metaBucketKey(shortCode),
+                    shortCode,
+                    ShortLinkMeta.class,
+                    value -> ShortLinkMeta.fromCompactString(shortCode, value),
+                    ShortLinkMeta::toCompactString,
+                    () -> loadShortLinkMeta(shortCode),
+                    RedisConstants.SHORT_LINK_CACHE_TTL,
+                    TimeUnit.HOURS
+            );
+        }
+        return cacheClient.queryWithMultiLevel(
+                RedisConstants.SHORT_LINK_CACHE_KEY,
                 shortCode,
-                String.class,
-                code -> {
-                    // 数据库回源逻辑
-                    ShortLink link = shortLinkMapper.findByShortCode(shortCode);
-                    return link != null ? link.getLongUrl(): null;
-                },
-                24L,
+                ShortLinkMeta.class,
+                this::loadShortLinkMeta,
+                RedisConstants.SHORT_LINK_CACHE_TTL,
+                TimeUnit.HOURS
+        );
+    }
+
+    @Override
+    public Map<String, ShortLinkMeta> getShortLinkMetas(Collection<String> shortCodes) {
+        List<String> candidates = shortCodes.stream()
+                .filter(shortCodeBloomFilter::mightContain)
+                .distinct()
+                .collect(Collectors.toList());
+        if (candidates.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        if (linkCacheLayout.isHashLayout()) {
+            return cacheClient.queryHashBatchWithMultiLevel(
+                    candidates,
+                    ShortLinkMeta.class,
+                    linkCacheLayout::metaKey,
+                    linkCacheLayout::metaBucketKey,
+                    ShortLinkMeta::fromCompactString,
+                    ShortLinkMeta::toCompactString,
+                    this::loadShortLinkMetas,
+                    RedisConstants.SHORT_LINK_CACHE_TTL,
+                    TimeUnit.HOURS
+            );
+        }
+        return cacheClient.queryBatchWithMultiLevel(
+                RedisConstants.SHORT_LINK_CACHE_KEY,
+                candidates,
+                ShortLinkMeta.class,
+                this::loadShortLinkMetas,
+                RedisConstants.SHORT_LINK_CACHE_TTL,
                 TimeUnit.HOURS
         );
+    }
 
+    /**
+     * 批量回源：一条 IN 查询，同样只占用一个 MySQL 并发许可
+     */
+    private Map<String, ShortLinkMeta> loadShortLinkMetas(Collection<String> shortCodes) {
+        List<ShortLink> links = downstreamLimiter.call(DownstreamLimiter.Downstream.MYSQL,
+                () -> shortLinkMapper.findByShortCodeIn(shortCodes));
+        Map<String, ShortLinkMeta> metas = new HashMap<>(links.size() * 2);
+        for (ShortLink link : links) {
+            metas.put(link.getShortCode(), ShortLinkMeta.from(link));
+        }
+        return metas;
     }
 
+    /**
+     * 数据库回源：占用一个 MySQL 并发许可，突发的缓存未命中不会把连接池等待队列无限拉长
+     */
+    private ShortLinkMeta loadShortLinkMeta(String shortCode) {
+        ShortLink link = downstreamLimiter.call(DownstreamLimiter.Downstream.MYSQL,
+                () -> shortLinkMapper.findByShortCode(shortCode));
+        return link != null ? ShortLinkMeta.from(link) : null;
+    }
 
+    /**
+     * 按当前存储布局清理元数据缓存（两级缓存 + 失效广播）
+     */
+    private void evictMeta(String shortCode) {
+        if (linkCacheLayout.isHashLayout()) {
+            cacheClient.evictHash(linkCacheLayout.metaKey(shortCode), linkCacheLayout.metaBucketKey(shortCode), shortCode);
+        } else {
+            cacheClient.evict(linkCacheLayout.metaKey(shortCode));
+        }
+    }
 
+    /**
+     * 点击量 +1：只在内存中聚合，由 {@link ClickAggregator} 定时批量刷入 Redis 并按阈值同步数据库
+     * 纯内存操作，无需再走 @Async 线程池；归属用户取自元数据，刷出时不再查库
+     * @param meta
+     */
     @Override
-    @Async
-    public void incrementClicks(String shortCode) {
-        // 0. 根据短码查询短链接，获取归属用户
-        ShortLink link = shortLinkMapper.findByShortCode(shortCode);
-        Long userId = link != null ? link.getUserId() : null;
-
-        // 1. 定义 Key（建议统一使用常量）
-        String clicksKey = "shortLink:clicks:" + shortCode;
-        String globalRankingKey = "shortLink:ranking:global"; // 全局排行榜 ZSet Key（可选）
-        String userRankingKey = userId != null ? "shortLink:ranking:" + userId : null; // 用户私有排行榜 Key
-
-        // 2. Redis 原子递增（用于每 100 次同步数据库的“计数器”）
-        Long currentClicks = redisTemplate.opsForValue().increment(clicksKey, 1);
-
-        // 3. 💡 增加 ZSet 的分数（用于实时排行榜）
-        // 3.1 全局总榜（可选）
-        redisTemplate.opsForZSet().incrementScore(globalRankingKey, shortCode, 1);
-        // 3.2 当前短链接所属用户的私有榜
-        if (userRankingKey != null) {
-            redisTemplate.opsForZSet().incrementScore(userRankingKey, shortCode, 1);
-        }
-
-        log.info("短链接 {} 点击量+1，当前增量计数值: {}", shortCode, currentClicks);
-
-        // 4. 每 100 次点击同步一次数据库
-        if (currentClicks != null && currentClicks % 100 == 0) {
-            log.info("短链接 {} 达到同步阈值，正在将 100 次点击同步至数据库", shortCode);
-
-            // 💡 建议直接更新，减少一次 findByShortCode 的数据库查询开销
-            int updatedRows = shortLinkMapper.updateTotalClicks(shortCode, 100);
-            if (updatedRows > 0) {
-                // 同步成功后，可选：减去已入库的 100，让 Redis 只留“零头”
-                redisTemplate.opsForValue().decrement(clicksKey, 100);
-            }
+    public void incrementClicks(ShortLinkMeta meta) {
+        clickAggregator.record(meta.getShortCode(), meta.getUserId());
+        if (RedirectPolicyUtils.isCacheable(meta.getRedirectStatus(), meta.getCacheMaxAge())) {
+            cacheableRedirectCounter.increment();
+        } else {
+            uncachedRedirectCounter.increment();
         }
     }
 
     /**
-     * 记录访问日志
-     * @param shortCode
+     * 记录访问日志：只构造事件并提交给 visit-log 执行器，地理位置解析与入队写入在后台完成
+     * 执行器队列有界，突发流量下按 rejection-policy 丢弃或溢出到本地文件，不阻塞重定向、不无限占用内存
+     * @param meta
      * @param ip
      * @param userAgent
      */
     @Override
-    @Transactional
-    @Async
-    public void recordVisitLog(String shortCode, String ip, String userAgent) {
-        try {
-            // 1. 创建访问日志对象
-            VisitLog visitLog = new VisitLog();
-            visitLog.setShortCode(shortCode);
-
-            // 1.1 根据短码反查短链接，填充所属用户 ID，便于后续按用户维度统计
-            ShortLink link = shortLinkMapper.findByShortCode(shortCode);
-            if (link != null && link.getUserId() != null) {
-                visitLog.setUserId(link.getUserId());
-            }
-
-            // 2. 获取真实客户端 IP 地址（支持代理、负载均衡等场景）
-
-            visitLog.setIp(ip);
+    public void recordVisitLog(ShortLinkMeta meta, String ip, String userAgent) {
+        // 1. 创建访问日志对象（访问时间在请求线程中确定，排队不影响记录的时间）
+        VisitLog visitLog = new VisitLog();
+        visitLog.setShortCode(meta.getShortCode());
+        visitLog.setCreateTime(LocalDateTime.now());
+        // 1.1 所属用户 ID 直接取自重定向时解析的元数据，便于后续按用户维度统计
+        visitLog.setUserId(meta.getUserId());
+        // 2. 获取真实客户端 IP 地址（支持代理、负载均衡等场景）
+        visitLog.setIp(ip);
+        // 3. 获取设备信息 (User-Agent)
+        visitLog.setUserAgent(userAgent != null ? userAgent : "Unknown");
+
+        visitLogExecutor.submit(new VisitLogTask(visitLog));
+    }
 
-            // 3. 获取设备信息 (User-Agent)
-            visitLog.setUserAgent(userAgent != null ? userAgent : "Unknown");
+    /**
+     * 每个周期先把溢出缓冲写入文件，流量回落（队列低于一半）后再重放溢出到本地文件的访问事件
+     * 重放用 offer 只入队不走拒绝策略：队列再满时停止重放，剩余行留在文件里，不会被重新溢出
+     */
+    @Scheduled(fixedDelayString = "${tracker.executors.visit-log.spill-replay-interval-ms:10000}")
+    public void replaySpilledVisitLogs() {
+        visitLogSpillStore.flush();
+        if (!visitLogSpillStore.hasPending() || visitLogExecutor.getQueueDepth() > visitLogExecutor.getQueueCapacity() / 2) {
+            return;
+        }
+        int replayed = visitLogSpillStore.replay(visitLog -> visitLogExecutor.offer(new VisitLogTask(visitLog)));
+        if (replayed > 0) {
+            log.info("已重放 {} 条溢出的访问日志", replayed);
+        }
+    }
 
-            // 4. 获取地理位置（根据 IP 查询）
-            // 方式一：同步查询（可能会稍微影响响应速度）
-            String location = IpLocationUtils.getLocation(ip);
+    /**
+     * 后台补全地理位置并交给写入器排队
+     */
+    private void enrichAndSubmit(VisitLog visitLog) {
+        try {
+            // 4. 获取地理位置（查询本地离线 IP 库，微秒级，无网络访问；受 geo 并发限制）
+            String location = IpLocationUtils.getLocationLimited(visitLog.getIp());
             visitLog.setLocation(location);
 
-            // 方式二：异步查询（推荐，不阻塞主流程）
-            // 如果选择异步，可以先保存 null，之后更新
-            // IpLocationUtils.getLocationAsync(clientIp, location -> {
-            //     visitLog.setLocation(location);
-            //     visitLogMapper.save(visitLog);
-            // });
-
-            // 5. 保存到数据库
-            visitLogMapper.save(visitLog);
-            
-            log.info("访问日志已记录: shortCode={}, ip={}, location={}", shortCode, ip, location);
-            
+            // 5. 交给写入器排队，由后台线程攒批写入数据库
+            if (visitLogWriter.submit(visitLog)) {
+                log.debug("访问日志已入队: shortCode={}, ip={}, location={}", visitLog.getShortCode(), visitLog.getIp(), location);
+            }
         } catch (Exception e) {
             // 记录日志失败不应影响主流程（重定向）
-            log.error("记录访问日志失败: shortCode={}, error={}", shortCode, e.getMessage(), e);
+            log.error("记录访问日志失败: shortCode={}, error={}", visitLog.getShortCode(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * visit-log 执行器中的任务，携带访问事件以便被拒绝时溢出到文件
+     */
+    private final class VisitLogTask implements Runnable {
+        private final VisitLog visitLog;
+
+        VisitLogTask(VisitLog visitLog) {
+            this.visitLog = visitLog;
+        }
+
+        @Override
+        public void run() {
+            enrichAndSubmit(visitLog);
         }
     }
 
@@ -305,12 +601,21 @@ public class ShortLinkServiceImpl implements ShortLinkService {
      * @return
      */
     @Override
-    public boolean updateShortLink(Long id, String longUrl, LocalDateTime expireDate) {
+    public boolean updateShortLink(Long id, String longUrl, LocalDateTime expireDate, Integer redirectType, Integer cacheMaxAge) {
         ShortLink shortLink = shortLinkMapper.findById(id).orElse(null);
         if (shortLink != null) {
             shortLink.setLongUrl(longUrl);
+            shortLink.setUrlHash(UrlUtils.hashUrl(longUrl));
             shortLink.setExpireTime(expireDate);
+            if (redirectType != null) {
+                shortLink.setRedirectType(redirectType);
+            }
+            if (cacheMaxAge != null) {
+                shortLink.setCacheMaxAge(cacheMaxAge);
+            }
             shortLinkMapper.save(shortLink);
+            // 更新后清理两级缓存并广播，下次访问会回源加载新链接
+            evictMeta(shortLink.getShortCode());
             return true;
         }
         return false;
@@ -352,14 +657,8 @@ public class ShortLinkServiceImpl implements ShortLinkService {
             return topLinks.stream().map(l -> new TopLinkItem(l.getShortCode(), l.getLongUrl(), l.getTotalClicks())).collect(Collectors.toList());
         }
 
-        // 4. 如果 Redis 有数据，直接封装返回
-        return typedTuples.stream().map(tuple -> {
-            String shortCode = tuple.getValue();
-            int score = tuple.getScore().intValue();
-            // 这里获取 LongUrl 建议走 cache 目录
-            String longUrl = getRedirectUrl(shortCode);
-            return new TopLinkItem(shortCode, longUrl, score);
-        }).collect(Collectors.toList());
+        // 4. 如果 Redis 有数据，批量解析长链接后封装返回
+        return toTopLinkItems(typedTuples);
     }
 
     /**
@@ -369,42 +668,87 @@ public class ShortLinkServiceImpl implements ShortLinkService {
      */
     @Override
     public List<TopLinkItem> getTopLinksFromGlobalRanking(int limit) {
-        // 1. 定义全局排行榜的 ZSet Key
-        String globalRankingKey = "shortLink:ranking:global";
-
-        // 2. 尝试从 Redis ZSet 获取全局前 N 名 (Score从高到低)
-        Set<ZSetOperations.TypedTuple<String>> typedTuples =
-                redisTemplate.opsForZSet().reverseRangeWithScores(globalRankingKey, 0, limit - 1);
+        // 1. 尝试从 Redis ZSet 获取全局前 N 名 (Score从高到低)
+        Set<ZSetOperations.TypedTuple<String>> typedTuples = redisTemplate.opsForZSet()
+                .reverseRangeWithScores(RedisConstants.SHORT_LINK_GLOBAL_RANKING_KEY, 0, limit - 1);
 
-        // 3. 如果 Redis 为空，回退到 DB 并预热
+        // 2. 如果 Redis 为空：本次走索引查询前 N 名，排行榜交给后台重建
         if (CollUtil.isEmpty(typedTuples)) {
-            log.info("全局 Redis 排行榜为空，回退到数据库查询并预热数据");
-            // 使用全局查询方法（不按用户过滤）
-            List<ShortLink> allLinks = shortLinkMapper.findAll();
-            List<ShortLink> topLinks = allLinks.stream()
-                    .sorted((a, b) -> Integer.compare(
-                            (b.getTotalClicks() != null ? b.getTotalClicks() : 0),
-                            (a.getTotalClicks() != null ? a.getTotalClicks() : 0)
-                    ))
-                    .limit(limit)
-                    .collect(Collectors.toList());
-
-            // 预热全局排行榜
-            topLinks.forEach(link ->
-                  redisTemplate.opsForZSet().add(globalRankingKey, link.getShortCode(), link.getTotalClicks().doubleValue())
-            );
-
+            log.info("全局 Redis 排行榜为空，回退到数据库查询并触发后台重建");
+            List<ShortLink> topLinks = downstreamLimiter.call(DownstreamLimiter.Downstream.MYSQL,
+                    () -> shortLinkMapper.findTopOrderByTotalClicksDesc(PageRequest.of(0, limit)));
+            rebuildGlobalRankingAsync();
             return topLinks.stream()
                     .map(l -> new TopLinkItem(l.getShortCode(), l.getLongUrl(), l.getTotalClicks()))
                     .collect(Collectors.toList());
         }
 
-        // 4. Redis 有数据时，直接从缓存构造结果
+        // 3. Redis 有数据时，批量解析长链接后构造结果
+        return toTopLinkItems(typedTuples);
+    }
+
+    /**
+     * 后台重建全局排行榜：同一时间只有一个重建任务，重建期间的其它空榜请求只查数据库
+     */
+    private void rebuildGlobalRankingAsync() {
+        if (!globalRankingRebuilding.compareAndSet(false, true)) {
+            return;
+        }
+        boolean submitted = rankingRebuildExecutor.submit(() -> {
+            try {
+                rebuildGlobalRanking();
+            } catch (Exception e) {
+                log.warn("全局排行榜重建失败", e);
+            } finally {
+                globalRankingRebuilding.set(false);
+            }
+        });
+        if (!submitted) {
+            globalRankingRebuilding.set(false);
+        }
+    }
+
+    /**
+     * 按索引读取点击量前 global-rebuild-size 的短链接，分批 ZADD 在一次管道中写入
+     * 重建期间已有的点击增量会被数据库中的总点击量覆盖，与原先逐条预热的语义一致
+     */
+    private void rebuildGlobalRanking() {
+        long start = System.currentTimeMillis();
+        List<ShortLink> topLinks = downstreamLimiter.call(DownstreamLimiter.Downstream.MYSQL,
+                () -> shortLinkMapper.findTopOrderByTotalClicksDesc(PageRequest.of(0, globalRankingRebuildSize)));
+        if (topLinks.isEmpty()) {
+            return;
+        }
+        byte[] key = RedisConstants.SHORT_LINK_GLOBAL_RANKING_KEY.getBytes(StandardCharsets.UTF_8);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int from = 0; from < topLinks.size(); from += rankingRebuildBatchSize) {
+                List<ShortLink> chunk = topLinks.subList(from, Math.min(from + rankingRebuildBatchSize, topLinks.size()));
+                Set<Tuple> tuples = new LinkedHashSet<>(chunk.size() * 2);
+                for (ShortLink link : chunk) {
+                    double score = link.getTotalClicks() != null ? link.getTotalClicks() : 0;
+                    tuples.add(new DefaultTuple(link.getShortCode().getBytes(StandardCharsets.UTF_8), score));
+                }
+                connection.zSetCommands().zAdd(key, tuples);
+            }
+            return null;
+        });
+        log.info("全局排行榜重建完成: {} 条, 耗时 {}ms", topLinks.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 排行榜条目 -> TopLinkItem：所有短码一次批量解析（一次 Redis 往返 + 最多一次 IN 查询），
+     * 而不是每个条目单独查一次缓存；已删除的短链接长链接为 null，与逐条解析时一致
+     */
+    private List<TopLinkItem> toTopLinkItems(Set<ZSetOperations.TypedTuple<String>> typedTuples) {
+        List<String> shortCodes = typedTuples.stream()
+                .map(ZSetOperations.TypedTuple::getValue)
+                .collect(Collectors.toList());
+        Map<String, ShortLinkMeta> metas = getShortLinkMetas(shortCodes);
         return typedTuples.stream().map(tuple -> {
             String shortCode = tuple.getValue();
             int score = tuple.getScore().intValue();
-            String longUrl = getRedirectUrl(shortCode);
-            return new TopLinkItem(shortCode, longUrl, score);
+            ShortLinkMeta meta = metas.get(shortCode);
+            return new TopLinkItem(shortCode, meta != null ? meta.getLongUrl() : null, score);
         }).collect(Collectors.toList());
     }
 }
@@ -0,0 +1,120 @@
+package com.neozeng.trackerserve.service.impl;
+
+import com.neozeng.trackerserve.mapper.LinkHourlyStatMapper;
+import com.neozeng.trackerserve.mapper.UserHourlyStatMapper;
+import com.neozeng.trackerserve.pojo.ShortLinkMeta;
+import com.neozeng.trackerserve.pojo.dto.ClickTrendItem;
+import com.neozeng.trackerserve.pojo.dto.TopLinkItem;
+import com.neozeng.trackerserve.service.ShortLinkService;
+import com.neozeng.trackerserve.service.StatsService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 统计分析服务实现
+ * 所有统计都读取小时预聚合表（t_link_hourly_stat / t_user_hourly_stat），
+ * 查询代价只与时间跨度内的小时桶数量有关，与原始点击量无关；
+ * 按天统计时在 Java 中按调用方时区把小时桶折叠成天。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StatsServiceImpl implements StatsService {
+
+    public static final String GRANULARITY_DAY = "day";
+    public static final String GRANULARITY_HOUR = "hour";
+
+    private static final DateTimeFormatter DAY_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter HOUR_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:00");
+
+    private final LinkHourlyStatMapper linkHourlyStatMapper;
+    private final UserHourlyStatMapper userHourlyStatMapper;
+    private final ShortLinkService shortLinkService;
+
+    @Override
+    public List<ClickTrendItem> getClickTrend(Long userId, int days, String granularity, ZoneId zone, String shortCode) {
+        boolean hourly = GRANULARITY_HOUR.equalsIgnoreCase(granularity);
+
+        // 1. 以调用方时区计算统计区间：[今天 0 点 - (days - 1) 天, 当前小时结束)
+        ZonedDateTime now = ZonedDateTime.now(zone);
+        ZonedDateTime start = now.toLocalDate().minusDays(days - 1L).atStartOfDay(zone);
+        ZonedDateTime end = now.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+
+        // 2. 预聚合表的小时桶是服务器本地时间，区间换算到服务器时区并对齐到整点后查询
+        ZoneId serverZone = ZoneId.systemDefault();
+        LocalDateTime queryStart = start.withZoneSameInstant(serverZone).toLocalDateTime().truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime queryEnd = end.withZoneSameInstant(serverZone).toLocalDateTime();
+        ZonedDateTime origin = queryStart.atZone(serverZone).withZoneSameInstant(zone);
+
+        List<Object[]> rows;
+        if (shortCode != null && !shortCode.isBlank()) {
+            // 只允许查询自己的短码
+            ShortLinkMeta meta = shortLinkService.getShortLinkMeta(shortCode);
+            if (meta == null || !userId.equals(meta.getUserId())) {
+                rows = List.of();
+            } else {
+                rows = linkHourlyStatMapper.findHourlyByShortCode(shortCode, queryStart, queryEnd);
+            }
+        } else {
+            rows = userHourlyStatMapper.findHourlyByUserId(userId, queryStart, queryEnd);
+        }
+
+        // 3. 生成完整序列（包括没有点击的桶），再把小时桶累加进去
+        Map<String, Long> buckets = new LinkedHashMap<>();
+        if (hourly) {
+            for (ZonedDateTime hour = start; hour.isBefore(end); hour = hour.plusHours(1)) {
+                buckets.put(hour.format(HOUR_FORMATTER), 0L);
+            }
+        } else {
+            for (LocalDate date = start.toLocalDate(); !date.isAfter(now.toLocalDate()); date = date.plusDays(1)) {
+                buckets.put(date.format(DAY_FORMATTER), 0L);
+            }
+        }
+        for (Object[] row : rows) {
+            long hourOffset = ((Number) row[0]).longValue();
+            long clicks = ((Number) row[1]).longValue();
+            ZonedDateTime hour = origin.plusHours(hourOffset);
+            String key = hourly ? hour.format(HOUR_FORMATTER) : hour.format(DAY_FORMATTER);
+            // 调用方时区与服务器时区相差非整小时时，首个小时桶可能落在统计区间之前
+            buckets.computeIfPresent(key, (k, v) -> v + clicks);
+        }
+
+        List<ClickTrendItem> trendData = new ArrayList<>(buckets.size());
+        buckets.forEach((date, clicks) -> trendData.add(new ClickTrendItem(date, clicks)));
+        return trendData;
+    }
+
+    @Override
+    public List<TopLinkItem> getTopLinks(Long userId, int days, int limit) {
+        LocalDateTime since = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).minusDays(days);
+        List<Object[]> rows = linkHourlyStatMapper.findTopByUserIdSince(userId, since, limit);
+        List<String> shortCodes = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            shortCodes.add((String) row[0]);
+        }
+        Map<String, ShortLinkMeta> metas = shortLinkService.getShortLinkMetas(shortCodes);
+        List<TopLinkItem> result = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            String shortCode = (String) row[0];
+            ShortLinkMeta meta = metas.get(shortCode);
+            if (meta == null) {
+                // 短链接已删除
+                continue;
+            }
+            result.add(new TopLinkItem(shortCode, meta.getLongUrl(), ((Number) row[1]).intValue()));
+        }
+        return result;
+    }
+}
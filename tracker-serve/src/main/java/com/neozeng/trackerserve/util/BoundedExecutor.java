@@ -0,0 +1,227 @@
+package com.neozeng.trackerserve.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 有界命名线程池：固定线程数 + 有界队列 + 可配置的拒绝策略，并发布队列长度与排队等待时间指标
+ * <p>
+ * 每类后台任务使用独立的实例（舱壁），某一类任务因下游变慢而堆积时，
+ * 只会按自己的拒绝策略降级，不会占满其他任务的线程，也不会让堆内存无限增长。
+ * 由 {@link ExecutorRegistry} 按 {@code tracker.executors.<name>.*} 配置创建。
+ * 线程为平台守护线程，虚拟线程模式下也不切换，以保留固定的并发上限（见 docs/virtual-threads.md）。
+ *
+ * <ul>
+ *     <li>drop：丢弃任务，只计数（适合可丢失的统计类任务）</li>
+ *     <li>caller-runs：由提交线程直接执行（适合不可丢失、提交方可以承受阻塞的任务）</li>
+ *     <li>spill：交给溢出处理器（如写入本地文件稍后重放），处理器不接受时丢弃；处理器在提交线程上调用，不应阻塞</li>
+ *     <li>abort：抛出 {@link RejectedExecutionException}，由调用方处理（如返回“系统繁忙”）</li>
+ * </ul>
+ */
+@Slf4j
+public final class BoundedExecutor implements Executor {
+
+    public enum RejectPolicy {
+        DROP, CALLER_RUNS, SPILL, ABORT;
+
+        public static RejectPolicy parse(String value) {
+            return valueOf(value.trim().toUpperCase().replace('-', '_'));
+        }
+    }
+
+    /**
+     * 溢出处理器：接收被拒绝的任务，返回 false 表示无法溢出（任务将被丢弃）
+     */
+    @FunctionalInterface
+    public interface SpillHandler {
+        boolean spill(Runnable task);
+    }
+
+    @Getter
+    private final String name;
+    @Getter
+    private final RejectPolicy policy;
+    @Getter
+    private final int queueCapacity;
+    private final ThreadPoolExecutor pool;
+    private final SpillHandler spillHandler;
+
+    private final Timer waitTimer;
+    private final Counter droppedCounter;
+    private final Counter callerRunsCounter;
+    private final Counter spilledCounter;
+    private final Counter abortedCounter;
+
+    BoundedExecutor(String name, int threads, int queueCapacity, RejectPolicy policy,
+                    SpillHandler spillHandler, MeterRegistry meterRegistry) {
+        if (policy == RejectPolicy.SPILL && spillHandler == null) {
+            throw new IllegalArgumentException("执行器 " + name + " 配置为 spill，但没有溢出处理器");
+        }
+        this.name = name;
+        this.policy = policy;
+        this.queueCapacity = queueCapacity;
+        this.spillHandler = spillHandler;
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread thread = new Thread(r, name + "-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("executor.queue.depth", pool, p -> p.getQueue().size())
+                .description("排队等待执行的任务数")
+                .tag("name", name)
+                .register(meterRegistry);
+        Gauge.builder("executor.queue.wait", this, BoundedExecutor::oldestWaitMillis)
+                .description("队首任务已排队的时间（毫秒）")
+                .tag("name", name)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+        Gauge.builder("executor.active", pool, ThreadPoolExecutor::getActiveCount)
+                .description("正在执行任务的线程数")
+                .tag("name", name)
+                .register(meterRegistry);
+        waitTimer = Timer.builder("executor.task.wait")
+                .description("任务从提交到开始执行的排队时间")
+                .tag("name", name)
+                .register(meterRegistry);
+        droppedCounter = rejectedCounter(meterRegistry, "dropped");
+        callerRunsCounter = rejectedCounter(meterRegistry, "caller_runs");
+        spilledCounter = rejectedCounter(meterRegistry, "spilled");
+        abortedCounter = rejectedCounter(meterRegistry, "aborted");
+    }
+
+    private Counter rejectedCounter(MeterRegistry meterRegistry, String action) {
+        return Counter.builder("executor.rejected")
+                .description("队列已满被拒绝的任务数（按处理方式区分）")
+                .tag("name", name)
+                .tag("action", action)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        submit(task);
+    }
+
+    /**
+     * 提交任务
+     * @return 任务已入队、已由调用方执行或已溢出时返回 true；被丢弃时返回 false
+     * @throws RejectedExecutionException 策略为 abort 且队列已满
+     */
+    public boolean submit(Runnable task) {
+        try {
+            pool.execute(new TimedTask(task, System.nanoTime()));
+            return true;
+        } catch (RejectedExecutionException e) {
+            return reject(task, e);
+        }
+    }
+
+    /**
+     * 只尝试入队，队列已满时直接返回 false，不执行拒绝策略、不计入拒绝指标
+     * 供溢出重放等“满了就下次再来”的调用方使用：重放的任务不能再被溢出回文件
+     */
+    public boolean offer(Runnable task) {
+        try {
+            pool.execute(new TimedTask(task, System.nanoTime()));
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    private boolean reject(Runnable task, RejectedExecutionException e) {
+        if (pool.isShutdown()) {
+            droppedCounter.increment();
+            return false;
+        }
+        switch (policy) {
+            case CALLER_RUNS:
+                callerRunsCounter.increment();
+                task.run();
+                return true;
+            case SPILL:
+                if (spillHandler.spill(task)) {
+                    spilledCounter.increment();
+                    return true;
+                }
+                droppedCounter.increment();
+                return false;
+            case ABORT:
+                abortedCounter.increment();
+                throw e;
+            case DROP:
+            default:
+                droppedCounter.increment();
+                log.debug("执行器 {} 队列已满，丢弃任务", name);
+                return false;
+        }
+    }
+
+    public int getQueueDepth() {
+        return pool.getQueue().size();
+    }
+
+    /**
+     * 队首任务已排队的时间，队列为空时为 0
+     */
+    public double oldestWaitMillis() {
+        BlockingQueue<Runnable> queue = pool.getQueue();
+        Runnable head = queue.peek();
+        if (head instanceof TimedTask timedTask) {
+            return (System.nanoTime() - timedTask.enqueuedNanos) / 1_000_000.0;
+        }
+        return 0;
+    }
+
+    void shutdown() {
+        pool.shutdown();
+    }
+
+    void shutdownNow() {
+        pool.shutdownNow();
+    }
+
+    boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return pool.awaitTermination(timeout, unit);
+    }
+
+    /**
+     * 记录入队时间的任务包装，开始执行时上报排队时长
+     */
+    private final class TimedTask implements Runnable {
+        private final Runnable delegate;
+        private final long enqueuedNanos;
+
+        TimedTask(Runnable delegate, long enqueuedNanos) {
+            this.delegate = delegate;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+
+        @Override
+        public void run() {
+            waitTimer.record(System.nanoTime() - enqueuedNanos, TimeUnit.NANOSECONDS);
+            try {
+                delegate.run();
+            } catch (Exception e) {
+                log.error("执行器 {} 的任务执行失败", name, e);
+            }
+        }
+    }
+}
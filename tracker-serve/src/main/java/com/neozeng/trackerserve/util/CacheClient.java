@@ -1,21 +1,58 @@
 package com.neozeng.trackerserve.util;
 
 import cn.hutool.core.util.BooleanUtil;
+import cn.hutool.core.util.IdUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.json.JSONObject;
 import cn.hutool.json.JSONUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.data.redis.serializer.RedisSerializer;
 
 import org.springframework.stereotype.Component;
 import com.neozeng.trackerserve.pojo.RedisData;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Random;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
 import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.stream.Collectors;
 
 
 /**
@@ -29,11 +66,161 @@ import java.util.function.Function;
 @RequiredArgsConstructor
 public class CacheClient {
     private final StringRedisTemplate stringRedisTemplate;
+    private final DownstreamLimiter downstreamLimiter;
+    private final ExecutorRegistry executorRegistry;
+
+    /**
+     * 本地 L1 缓存最大条目数
+     */
+    @Value("${tracker.cache.local.maximum-size:10000}")
+    private long localMaximumSize;
+
+    /**
+     * 本地 L1 缓存写入后存活时间（秒）。即使失效广播丢失，脏数据最多存活这么久
+     */
+    @Value("${tracker.cache.local.expire-seconds:60}")
+    private long localExpireSeconds;
+
+    /**
+     * 本地 L1 缓存：key 为完整的 Redis key，value 为反序列化后的对象
+     */
+    private Cache<String, Object> localCache;
+
+    /**
+     * 被钉住的热点 key（由 HotKeyDetector 维护）：不受 L1 容量淘汰，但与 L1 一样在加载 expire-seconds 后过期，
+     * 过期后下一次读取回到 Redis 重新加载，失效广播丢失时脏数据同样最多存活 expire-seconds
+     * value 为 NOT_LOADED 表示已钉住但尚未加载（或已失效），否则为 {@link PinnedValue}
+     */
+    private final ConcurrentHashMap<String, Object> pinned = new ConcurrentHashMap<>();
+
+    private static final Object NOT_LOADED = new Object();
+
+    /**
+     * 钉住的值及其加载时间
+     */
+    private record PinnedValue(Object value, long loadedAtMillis) {
+    }
+
+    /**
+     * 合并回源时，跟随者等待领头线程加载结果的最长时间（毫秒）
+     */
+    @Value("${tracker.cache.single-flight.wait-timeout-ms:3000}")
+    private long singleFlightWaitTimeoutMs;
+
+    /**
+     * 正在回源的 key -> 加载结果，同一节点同一 key 同时只有一个线程查询数据库
+     */
+    private final ConcurrentHashMap<String, CompletableFuture<Object>> inFlightLoads = new ConcurrentHashMap<>();
+
+    /**
+     * Hash 桶中的值超过该字节数时用 Deflate 压缩（0 表示不压缩）。
+     * 压缩值以 0x00 开头，URL 中不会出现该字节，未压缩的值在 redis-cli 中仍然可读
+     */
+    @Value("${tracker.cache.hash.compress-threshold:256}")
+    private int compressThreshold;
+
+    private static final byte COMPRESSED_FLAG = 0;
+
+    /**
+     * 提前刷新（refresh-ahead）：热点 key 在过期前由后台按 XFetch 概率提前回源重建，冷 key 任其过期
+     */
+    @Value("${tracker.cache.refresh-ahead.enabled:false}")
+    private boolean refreshAheadEnabled;
+
+    /**
+     * XFetch 的 beta，越大越早刷新
+     */
+    @Value("${tracker.cache.refresh-ahead.beta:1.0}")
+    private double refreshBeta;
+
+    /**
+     * 回源耗时（XFetch 的 delta）的下限：回源通常只需几毫秒，直接使用会导致提前量过小，热点 key 来不及在过期前命中刷新
+     */
+    @Value("${tracker.cache.refresh-ahead.min-delta-ms:2000}")
+    private long refreshMinDeltaMs;
+
+    /**
+     * 访问频率达到该值（次/秒）的 key 按完整提前量刷新，低于它的按比例缩小提前量
+     */
+    @Value("${tracker.cache.refresh-ahead.hot-rate-per-second:1.0}")
+    private double hotRatePerSecond;
+
+    /**
+     * 访问频率低于该值（次/秒）的冷 key 不提前刷新，到期自然过期
+     */
+    @Value("${tracker.cache.refresh-ahead.cold-rate-per-second:0.05}")
+    private double coldRatePerSecond;
+
+    /**
+     * 统计访问频率的窗口（秒）
+     */
+    @Value("${tracker.cache.refresh-ahead.rate-window-seconds:60}")
+    private long rateWindowSeconds;
+
+    /**
+     * key -> 访问频率、过期时间与上次回源耗时；比 L1 存活更久，L1 过期后频率统计不中断
+     */
+    private Cache<String, RefreshState> refreshStates;
+
+    /**
+     * 提前刷新的后台线程池：有界队列，队列满时直接丢弃（刷新是尽力而为，key 到期后仍会被正常回源）
+     */
+    private BoundedExecutor refreshExecutor;
+
+    /**
+     * 逻辑过期重建线程池：队列满时由调用线程直接重建（持有锁，不能丢弃）
+     */
+    private BoundedExecutor rebuildExecutor;
+
+    private static final DefaultRedisScript<Long> UNLOCK_SCRIPT;
+
+    static {
+        UNLOCK_SCRIPT = new DefaultRedisScript<>();
+        UNLOCK_SCRIPT.setLocation(new ClassPathResource("lua/unlock.lua"));
+        UNLOCK_SCRIPT.setResultType(Long.class);
+    }
+
+    @PostConstruct
+    public void initLocalCache() {
+        refreshExecutor = executorRegistry.create("cache-refresh", 2, 1000, BoundedExecutor.RejectPolicy.DROP);
+        rebuildExecutor = executorRegistry.create("cache-rebuild", 4, 1000, BoundedExecutor.RejectPolicy.CALLER_RUNS);
+        localCache = Caffeine.newBuilder()
+                .maximumSize(localMaximumSize)
+                .expireAfterWrite(localExpireSeconds, TimeUnit.SECONDS)
+                .build();
+        log.info("本地 L1 缓存已初始化: maximumSize={}, expireSeconds={}", localMaximumSize, localExpireSeconds);
+        if (refreshAheadEnabled) {
+            refreshStates = Caffeine.newBuilder()
+                    .maximumSize(localMaximumSize)
+                    .expireAfterAccess(rateWindowSeconds * 5, TimeUnit.SECONDS)
+                    .build();
+            log.info("缓存提前刷新已开启: beta={}, minDeltaMs={}, hotRate={}/s, coldRate={}/s",
+                    refreshBeta, refreshMinDeltaMs, hotRatePerSecond, coldRatePerSecond);
+        }
+    }
 
     public void set(String key, Object value, Long time, TimeUnit unit) {
         stringRedisTemplate.opsForValue().set(key, JSONUtil.toJsonStr(value), time, unit);
     }
 
+    /**
+     * 批量写入缓存：一次管道发送所有 SET，用于批量创建后预热
+     * @param entries key -> 缓存对象（JSON 序列化）
+     */
+    public void setBatch(Map<String, ?> entries, Long time, TimeUnit unit) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        Expiration expiration = Expiration.from(time, unit);
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            entries.forEach((key, value) -> connection.stringCommands().set(
+                    key.getBytes(StandardCharsets.UTF_8),
+                    JSONUtil.toJsonStr(value).getBytes(StandardCharsets.UTF_8),
+                    expiration, RedisStringCommands.SetOption.upsert()));
+            return null;
+        });
+    }
+
     public void setLogicExpire(String key, Object value, Long time, TimeUnit unit) {
        RedisData redisData = new RedisData();
         redisData.setData(value);
@@ -42,7 +229,8 @@ public class CacheClient {
     }
     public <R,ID>R queryWithPassThrough(String keyPrefix, ID id, Class<R> type, Function<ID,R> dbFallback,Long time, TimeUnit unit) {
         //添加缓存
-        String shopJson = stringRedisTemplate.opsForValue().get(keyPrefix + id);
+        String shopJson = downstreamLimiter.call(DownstreamLimiter.Downstream.REDIS,
+                () -> stringRedisTemplate.opsForValue().get(keyPrefix + id));
         if (StrUtil.isNotBlank(shopJson)) {
             // 💡 增加判断：如果目标类型本身就是 String，直接返回，不走 JSON 解析
             if (type.equals(String.class)) {
@@ -59,19 +247,568 @@ public class CacheClient {
         if (shopJson != null) {
             return null;
         }
-        //不存在，查询数据库
-        R r = dbFallback.apply(id);
+        //不存在，查询数据库（同一 key 的并发回源合并为一次）
+        return loadWithSingleFlight(keyPrefix + id, () -> {
+            long start = System.currentTimeMillis();
+            R r = dbFallback.apply(id);
+            if (r == null) {
+                //数据库不存在，返回null（TTL 加随机值，且保证不为 0，否则 Redis 会拒绝 SET）
+                stringRedisTemplate.opsForValue().set(keyPrefix + id, "", RedisConstants.CACHE_NULL_TTL + new Random().nextInt(10), TimeUnit.MINUTES);
+                return null;
+            }
+            log.debug("缓存未命中,差数据库");
+            this.set(keyPrefix + id, r, time, unit);
+            recordWrite(keyPrefix + id, unit.toMillis(time), System.currentTimeMillis() - start);
+            return r;
+        });
+    }
+
+    /**
+     * 单飞（single-flight）回源：同一 key 只有第一个线程执行 loader（查库 + 回写缓存），
+     * 其余线程等待它的结果；loader 抛出的异常会原样传递给所有等待者。
+     * 等待超过 {@code tracker.cache.single-flight.wait-timeout-ms} 时抛出 {@link IllegalStateException}。
+     */
+    @SuppressWarnings("unchecked")
+    private <R> R loadWithSingleFlight(String key, Supplier<R> loader) {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlightLoads.putIfAbsent(key, future);
+        if (existing != null) {
+            log.debug("key {} 正在被其他线程回源，等待其结果", key);
+            try {
+                return (R) existing.get(singleFlightWaitTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                throw new IllegalStateException("等待缓存回源超时: " + key, e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("等待缓存回源被中断: " + key, e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                throw new IllegalStateException("缓存回源失败: " + key, cause);
+            }
+        }
+
+        try {
+            R r = loader.get();
+            future.complete(r);
+            return r;
+        } catch (RuntimeException | Error e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlightLoads.remove(key, future);
+        }
+    }
+
+    /**
+     * 二级缓存查询：本地 L1 (Caffeine) -> Redis -> 数据库
+     * L1 命中时不产生任何网络开销，L1 未命中才走 {@link #queryWithPassThrough}
+     */
+    @SuppressWarnings("unchecked")
+    public <R, ID> R queryWithMultiLevel(String keyPrefix, ID id, Class<R> type, Function<ID, R> dbFallback, Long time, TimeUnit unit) {
+        String key = keyPrefix + id;
+        R r = (R) getLocal(key);
         if (r == null) {
-            //数据库不存在，返回null
-            stringRedisTemplate.opsForValue().set(keyPrefix + id, "", RedisConstants.CACHE_NULL_TTL * new Random().nextInt(10), TimeUnit.MINUTES);
+            r = queryWithPassThrough(keyPrefix, id, type, dbFallback, time, unit);
+            if (r != null) {
+                putLocal(key, r);
+            }
+        }
+        if (r != null && refreshAheadEnabled) {
+            refreshAheadIfDue(key, key, unit.toMillis(time), () -> {
+                R fresh = dbFallback.apply(id);
+                if (fresh == null) {
+                    evict(key);
+                } else {
+                    this.set(key, fresh, time, unit);
+                }
+                return fresh;
+            });
+        }
+        return r;
+    }
+
+    /**
+     * 删除缓存：清理 Redis 与本地 L1，并广播给其他节点清理各自的 L1
+     */
+    public void evict(String key) {
+        stringRedisTemplate.delete(key);
+        invalidateLocal(key);
+        stringRedisTemplate.convertAndSend(RedisConstants.CACHE_INVALIDATE_CHANNEL, key);
+    }
+
+    /**
+     * 仅清理本节点的 L1 缓存（由失效广播监听器调用）
+     */
+    public void invalidateLocal(String key) {
+        localCache.invalidate(key);
+        pinned.replace(key, NOT_LOADED);
+    }
+
+    /**
+     * 钉住 key：此后的加载结果不受 L1 容量淘汰，直到 {@link #unpin}
+     * 不沿用 L1 中已有的值（其加载时间未知），下一次从 Redis 加载后才开始计时
+     */
+    public void pin(String key) {
+        pinned.putIfAbsent(key, NOT_LOADED);
+    }
+
+    /**
+     * 解除钉住：putLocal 同时写入了 L1，L1 中的副本按原写入时间正常过期
+     */
+    public void unpin(String key) {
+        pinned.remove(key);
+    }
+
+    /**
+     * key 在本节点的读取来源：pinned（钉在内存且未过期）/ l1 / remote（下次读取需访问 Redis）
+     */
+    public String localSource(String key) {
+        if (freshPinned(key) != null) {
+            return "pinned";
+        }
+        return localCache.getIfPresent(key) != null ? "l1" : "remote";
+    }
+
+    /**
+     * 只读本节点内存（钉住的热点 + L1），未命中返回 null，不访问 Redis
+     */
+    public Object getLocal(String key) {
+        Object value = freshPinned(key);
+        if (value != null) {
+            return value;
+        }
+        return localCache.getIfPresent(key);
+    }
+
+    /**
+     * 写入本节点 L1（key 已钉住时同时更新钉住的值并重新计时）
+     */
+    public void putLocal(String key, Object value) {
+        localCache.put(key, value);
+        pinned.replace(key, new PinnedValue(value, System.currentTimeMillis()));
+    }
+
+    /**
+     * 钉住且未超过 expire-seconds 的值；过期时返回 null，由调用方回到 L1 / Redis 重新加载
+     */
+    private Object freshPinned(String key) {
+        if (!(pinned.get(key) instanceof PinnedValue pinnedValue)) {
             return null;
         }
-        log.debug("缓存未命中,差数据库");
-        this.set(keyPrefix + id, r, time, unit);
+        if (System.currentTimeMillis() - pinnedValue.loadedAtMillis() > TimeUnit.SECONDS.toMillis(localExpireSeconds)) {
+            return null;
+        }
+        return pinnedValue.value();
+    }
+
+    /**
+     * Hash 桶二级缓存查询：本地 L1 -> HGET 桶内 field -> 数据库
+     * <p>
+     * L1 与空值标记仍使用独立的 string key（localKey），与 string 布局共用失效广播；
+     * 桶内未命中时会顺带读取 localKey，兼容切换布局前写入的 JSON 缓存，读到后转存入桶。
+     *
+     * @param localKey   L1 key，同时是空值标记 / 旧布局缓存的 Redis key
+     * @param hashKey    桶 key
+     * @param field      桶内 field
+     * @param decoder    紧凑字符串 -> 对象
+     * @param encoder    对象 -> 紧凑字符串
+     * @param dbFallback 回源查询，不存在时返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public <R> R queryHashWithMultiLevel(String localKey, String hashKey, String field, Class<R> type,
+                                         Function<String, R> decoder, Function<R, String> encoder,
+                                         Supplier<R> dbFallback, Long time, TimeUnit unit) {
+        R cached = (R) getLocal(localKey);
+        if (cached != null) {
+            refreshHashAheadIfDue(localKey, hashKey, field, encoder, dbFallback, time, unit);
+            return cached;
+        }
+        byte[] raw = downstreamLimiter.call(DownstreamLimiter.Downstream.REDIS, () ->
+                stringRedisTemplate.execute((RedisCallback<byte[]>) connection ->
+                        connection.hashCommands().hGet(bytes(hashKey), bytes(field))));
+        R r;
+        if (raw != null) {
+            r = decoder.apply(decodeValue(raw));
+        } else {
+            String legacy = stringRedisTemplate.opsForValue().get(localKey);
+            if (legacy != null && legacy.isEmpty()) {
+                return null;
+            }
+            if (legacy != null) {
+                r = JSONUtil.toBean(legacy, type);
+                hashSet(hashKey, field, encoder.apply(r), time, unit);
+            } else {
+                r = loadWithSingleFlight(localKey, () -> {
+                    long start = System.currentTimeMillis();
+                    R loaded = dbFallback.get();
+                    if (loaded == null) {
+                        stringRedisTemplate.opsForValue().set(localKey, "", RedisConstants.CACHE_NULL_TTL + new Random().nextInt(10), TimeUnit.MINUTES);
+                        return null;
+                    }
+                    hashSet(hashKey, field, encoder.apply(loaded), time, unit);
+                    recordWrite(localKey, unit.toMillis(time), System.currentTimeMillis() - start);
+                    return loaded;
+                });
+            }
+        }
+        if (r != null) {
+            putLocal(localKey, r);
+            refreshHashAheadIfDue(localKey, hashKey, field, encoder, dbFallback, time, unit);
+        }
         return r;
     }
-    //定义线程池
-    private static final ExecutorService CACHE_REBUILD_EXECUTOR = Executors.newFixedThreadPool(10);
+
+    /**
+     * 桶内 field 没有独立 TTL，以桶的 TTL 作为过期时间；刷新写入会顺带延长整个桶的 TTL
+     */
+    private <R> void refreshHashAheadIfDue(String localKey, String hashKey, String field, Function<R, String> encoder,
+                                           Supplier<R> dbFallback, Long time, TimeUnit unit) {
+        if (!refreshAheadEnabled) {
+            return;
+        }
+        refreshAheadIfDue(localKey, hashKey, unit.toMillis(time), () -> {
+            R fresh = dbFallback.get();
+            if (fresh == null) {
+                evictHash(localKey, hashKey, field);
+            } else {
+                hashSet(hashKey, field, encoder.apply(fresh), time, unit);
+            }
+            return fresh;
+        });
+    }
+
+    /**
+     * 记录本节点写入缓存的过期时间与回源耗时，供 XFetch 判断使用
+     */
+    private void recordWrite(String localKey, long ttlMillis, long deltaMillis) {
+        if (!refreshAheadEnabled) {
+            return;
+        }
+        RefreshState state = refreshStates.get(localKey, k -> new RefreshState());
+        state.expireAtMillis = System.currentTimeMillis() + ttlMillis;
+        state.deltaMillis = deltaMillis;
+    }
+
+    /**
+     * XFetch 概率提前刷新：每次访问都掷一次骰子，满足
+     * {@code now + delta * beta * weight * (-ln U) >= expireAt} 时提交后台刷新，U ~ (0, 1]。
+     * 离过期越近、回源越慢、访问越频繁（weight = min(1, 访问频率 / hot-rate)），越容易提前刷新；
+     * 访问频率低于 cold-rate 的 key 不参与，到期后由正常的未命中路径回源。
+     *
+     * @param localKey  L1 key，也是刷新状态的 key
+     * @param ttlKey    用于查询 PTTL 的 Redis key
+     * @param ttlMillis 重建后的 TTL
+     * @param reloader  回源并回写 Redis，返回新值（null 表示数据已不存在）
+     */
+    private void refreshAheadIfDue(String localKey, String ttlKey, long ttlMillis, Supplier<Object> reloader) {
+        RefreshState state = refreshStates.get(localKey, k -> new RefreshState());
+        long now = System.currentTimeMillis();
+        double rate = state.recordAccess(now, TimeUnit.SECONDS.toMillis(rateWindowSeconds));
+        if (rate < coldRatePerSecond) {
+            return;
+        }
+        long expireAt = state.expireAtMillis;
+        // 过期时间未知（缓存由其他节点写入）时不刷新，只在后台查询一次 PTTL
+        boolean probeOnly = expireAt == 0;
+        if (!probeOnly) {
+            double weight = Math.min(1.0, rate / hotRatePerSecond);
+            double delta = Math.max(state.deltaMillis, refreshMinDeltaMs);
+            double lead = -delta * refreshBeta * weight * Math.log(1.0 - ThreadLocalRandom.current().nextDouble());
+            if (now + lead < expireAt) {
+                return;
+            }
+        }
+        if (!state.busy.compareAndSet(false, true)) {
+            return;
+        }
+        if (!refreshExecutor.submit(() -> refresh(localKey, ttlKey, ttlMillis, state, reloader, probeOnly))) {
+            // 队列已满：放弃本次刷新，key 到期后仍会被正常回源
+            state.busy.set(false);
+        }
+    }
+
+    private void refresh(String localKey, String ttlKey, long ttlMillis, RefreshState state,
+                         Supplier<Object> reloader, boolean probeOnly) {
+        String lockKey = RedisConstants.CACHE_REFRESH_LOCK_KEY + localKey;
+        String token = null;
+        try {
+            // 1. 先看 Redis 中的实际 TTL：其他节点可能已经刷新过，只需更新本地记录的过期时间
+            Long pttl = stringRedisTemplate.getExpire(ttlKey, TimeUnit.MILLISECONDS);
+            long now = System.currentTimeMillis();
+            if (pttl == null || pttl < 0) {
+                // key 已不存在或没有 TTL：不再提前刷新，等本节点下次回源写入时重新记录
+                state.expireAtMillis = Long.MAX_VALUE;
+                return;
+            }
+            long actualExpireAt = now + pttl;
+            if (probeOnly || actualExpireAt > state.expireAtMillis + 1000) {
+                state.expireAtMillis = actualExpireAt;
+                return;
+            }
+            // 2. 跨节点互斥，同一 key 只由一个节点回源
+            token = tryLock(lockKey);
+            if (token == null) {
+                return;
+            }
+            long start = System.currentTimeMillis();
+            Object fresh = reloader.get();
+            state.deltaMillis = System.currentTimeMillis() - start;
+            state.expireAtMillis = System.currentTimeMillis() + ttlMillis;
+            if (fresh != null) {
+                putLocal(localKey, fresh);
+            }
+            log.debug("缓存已提前刷新: key={}, 回源耗时 {} ms", localKey, state.deltaMillis);
+        } catch (Exception e) {
+            log.warn("缓存提前刷新失败: key={}, {}", localKey, e.getMessage());
+        } finally {
+            if (token != null) {
+                unLock(lockKey, token);
+            }
+            state.busy.set(false);
+        }
+    }
+
+    /**
+     * 写入桶内一个 field，并刷新整个桶的 TTL（桶连续 time 时长无写入才整体过期）
+     */
+    public void hashSet(String hashKey, String field, String value, Long time, TimeUnit unit) {
+        hashSetBatch(Map.of(hashKey, Map.of(field, value)), time, unit);
+    }
+
+    /**
+     * 批量写入多个桶：一次管道发送所有 HSET 与 EXPIRE
+     * @param buckets 桶 key -> (field -> 紧凑字符串)
+     */
+    public void hashSetBatch(Map<String, Map<String, String>> buckets, Long time, TimeUnit unit) {
+        if (buckets.isEmpty()) {
+            return;
+        }
+        long seconds = unit.toSeconds(time);
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            buckets.forEach((hashKey, fields) -> {
+                byte[] key = bytes(hashKey);
+                Map<byte[], byte[]> encoded = new HashMap<>(fields.size() * 2);
+                fields.forEach((field, value) -> encoded.put(bytes(field), encodeValue(value)));
+                connection.hashCommands().hMSet(key, encoded);
+                connection.keyCommands().expire(key, seconds);
+            });
+            return null;
+        });
+    }
+
+    /**
+     * 删除桶内缓存：HDEL 桶内 field、删除同名 string key（空值标记或旧布局缓存），清理 L1 并广播
+     */
+    public void evictHash(String localKey, String hashKey, String field) {
+        stringRedisTemplate.opsForHash().delete(hashKey, field);
+        evict(localKey);
+    }
+
+    /**
+     * 批量二级缓存查询（string 布局）：本地 L1 -> 一次 MGET -> 未命中的 id 一次批量回源，回源结果一次管道回填
+     * 空值标记视为不存在，不再回源；回源也查不到的 id 写入空值标记（与 queryWithPassThrough 一致），不在结果中
+     *
+     * @param dbFallback 批量回源，返回 id -> 对象
+     * @return id -> 对象
+     */
+    @SuppressWarnings("unchecked")
+    public <R> Map<String, R> queryBatchWithMultiLevel(String keyPrefix, Collection<String> ids, Class<R> type,
+                                                       Function<Collection<String>, Map<String, R>> dbFallback,
+                                                       Long time, TimeUnit unit) {
+        Map<String, R> result = new HashMap<>(ids.size() * 2);
+        Set<String> remoteIds = new LinkedHashSet<>();
+        for (String id : ids) {
+            R cached = (R) getLocal(keyPrefix + id);
+            if (cached != null) {
+                result.put(id, cached);
+            } else {
+                remoteIds.add(id);
+            }
+        }
+        if (remoteIds.isEmpty()) {
+            return result;
+        }
+        List<String> idList = new ArrayList<>(remoteIds);
+        List<String> keys = idList.stream().map(id -> keyPrefix + id).collect(Collectors.toList());
+        List<String> values = downstreamLimiter.call(DownstreamLimiter.Downstream.REDIS,
+                () -> stringRedisTemplate.opsForValue().multiGet(keys));
+        List<String> missing = new ArrayList<>();
+        for (int i = 0; i < idList.size(); i++) {
+            String json = values == null ? null : values.get(i);
+            if (json == null) {
+                missing.add(idList.get(i));
+            } else if (!json.isEmpty()) {
+                R r = JSONUtil.toBean(json, type);
+                putLocal(keys.get(i), r);
+                result.put(idList.get(i), r);
+            }
+        }
+        if (!missing.isEmpty()) {
+            Map<String, R> loaded = dbFallback.apply(missing);
+            Map<String, R> entries = new HashMap<>(loaded.size() * 2);
+            loaded.forEach((id, r) -> {
+                entries.put(keyPrefix + id, r);
+                putLocal(keyPrefix + id, r);
+            });
+            setBatch(entries, time, unit);
+            setNullMarkers(missing.stream()
+                    .filter(id -> !loaded.containsKey(id))
+                    .map(id -> keyPrefix + id)
+                    .collect(Collectors.toList()));
+            result.putAll(loaded);
+        }
+        return result;
+    }
+
+    /**
+     * 批量二级缓存查询（hash 布局）：本地 L1 -> 一次管道（每个桶一条 HMGET + 旧布局 string key 的 MGET）
+     * -> 未命中的 id 一次批量回源，回源结果一次管道回填
+     * 与单条查询一致：旧 key 中的空值标记视为不存在；旧 key 中的 JSON 直接使用并转存入桶；
+     * 回源也查不到的 id 在旧 key 上写入空值标记
+     *
+     * @param localKeyOf  id -> L1 key（同时是旧布局的 string key）
+     * @param bucketKeyOf id -> 桶 key（id 同时是桶内 field）
+     * @param decoder     (id, 紧凑字符串) -> 对象
+     * @param encoder     对象 -> 紧凑字符串
+     * @param dbFallback  批量回源，返回 id -> 对象
+     */
+    @SuppressWarnings("unchecked")
+    public <R> Map<String, R> queryHashBatchWithMultiLevel(Collection<String> ids, Class<R> type,
+                                                           Function<String, String> localKeyOf,
+                                                           Function<String, String> bucketKeyOf,
+                                                           BiFunction<String, String, R> decoder, Function<R, String> encoder,
+                                                           Function<Collection<String>, Map<String, R>> dbFallback,
+                                                           Long time, TimeUnit unit) {
+        Map<String, R> result = new HashMap<>(ids.size() * 2);
+        Map<String, Set<String>> byBucket = new LinkedHashMap<>();
+        for (String id : ids) {
+            R cached = (R) getLocal(localKeyOf.apply(id));
+            if (cached != null) {
+                result.put(id, cached);
+                continue;
+            }
+            byBucket.computeIfAbsent(bucketKeyOf.apply(id), k -> new LinkedHashSet<>()).add(id);
+        }
+        if (byBucket.isEmpty()) {
+            return result;
+        }
+        List<String> bucketKeys = new ArrayList<>(byBucket.keySet());
+        List<String> remoteIds = new ArrayList<>();
+        byBucket.values().forEach(remoteIds::addAll);
+        List<Object> replies = downstreamLimiter.call(DownstreamLimiter.Downstream.REDIS, () ->
+                stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    for (String bucketKey : bucketKeys) {
+                        byte[][] fields = byBucket.get(bucketKey).stream().map(CacheClient::bytes).toArray(byte[][]::new);
+                        connection.hashCommands().hMGet(bytes(bucketKey), fields);
+                    }
+                    byte[][] legacyKeys = remoteIds.stream().map(id -> bytes(localKeyOf.apply(id))).toArray(byte[][]::new);
+                    connection.stringCommands().mGet(legacyKeys);
+                    return null;
+                }, RedisSerializer.byteArray()));
+        List<byte[]> legacyValues = (List<byte[]>) replies.get(bucketKeys.size());
+        Map<String, R> migrated = new HashMap<>();
+        List<String> missing = new ArrayList<>();
+        int legacyIndex = 0;
+        for (int i = 0; i < bucketKeys.size(); i++) {
+            List<byte[]> values = (List<byte[]>) replies.get(i);
+            int j = 0;
+            for (String id : byBucket.get(bucketKeys.get(i))) {
+                byte[] raw = values == null ? null : values.get(j);
+                byte[] legacy = legacyValues == null ? null : legacyValues.get(legacyIndex);
+                j++;
+                legacyIndex++;
+                R r;
+                if (raw != null) {
+                    r = decoder.apply(id, decodeValue(raw));
+                } else if (legacy == null) {
+                    missing.add(id);
+                    continue;
+                } else if (legacy.length == 0) {
+                    // 空值标记
+                    continue;
+                } else {
+                    r = JSONUtil.toBean(new String(legacy, StandardCharsets.UTF_8), type);
+                    migrated.put(id, r);
+                }
+                putLocal(localKeyOf.apply(id), r);
+                result.put(id, r);
+            }
+        }
+        Map<String, R> toStore = new HashMap<>(migrated);
+        if (!missing.isEmpty()) {
+            Map<String, R> loaded = dbFallback.apply(missing);
+            loaded.forEach((id, r) -> putLocal(localKeyOf.apply(id), r));
+            toStore.putAll(loaded);
+            setNullMarkers(missing.stream()
+                    .filter(id -> !loaded.containsKey(id))
+                    .map(localKeyOf)
+                    .collect(Collectors.toList()));
+            result.putAll(loaded);
+        }
+        if (!toStore.isEmpty()) {
+            Map<String, Map<String, String>> buckets = new HashMap<>();
+            toStore.forEach((id, r) ->
+                    buckets.computeIfAbsent(bucketKeyOf.apply(id), k -> new HashMap<>()).put(id, encoder.apply(r)));
+            hashSetBatch(buckets, time, unit);
+        }
+        return result;
+    }
+
+    /**
+     * 一次管道写入空值标记，TTL 与单条查询的空值标记相同（CACHE_NULL_TTL 分钟加随机抖动）
+     */
+    private void setNullMarkers(List<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        byte[] empty = new byte[0];
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String key : keys) {
+                long seconds = TimeUnit.MINUTES.toSeconds(RedisConstants.CACHE_NULL_TTL + ThreadLocalRandom.current().nextInt(10));
+                connection.stringCommands().set(bytes(key), empty, Expiration.seconds(seconds),
+                        RedisStringCommands.SetOption.upsert());
+            }
+            return null;
+        });
+    }
+
+    private byte[] encodeValue(String value) {
+        byte[] raw = bytes(value);
+        if (compressThreshold <= 0 || raw.length < compressThreshold) {
+            return raw;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length);
+        out.write(COMPRESSED_FLAG);
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(out, new Deflater(Deflater.BEST_SPEED, true))) {
+            deflater.write(raw);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // 短文本压缩后可能反而变长，此时保存原文
+        return out.size() < raw.length ? out.toByteArray() : raw;
+    }
+
+    /**
+     * 还原桶内 value（识别 0x00 压缩标记），供直接读取原始字节的调用方（如响应式重定向）使用
+     */
+    public String decodeValue(byte[] raw) {
+        if (raw.length == 0 || raw[0] != COMPRESSED_FLAG) {
+            return new String(raw, StandardCharsets.UTF_8);
+        }
+        try (InflaterInputStream inflater = new InflaterInputStream(
+                new ByteArrayInputStream(raw, 1, raw.length - 1), new Inflater(true))) {
+            return new String(inflater.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
 
     public <R, ID> R queryWithLogicExpire(String keyPrefix, ID id, Class<R> type,
                                           Function<ID, R> dbFallback, long time, TimeUnit unit) {
@@ -97,25 +834,26 @@ public class CacheClient {
 
         // 4. 已过期，尝试获取锁进行缓存重建
         String lockKey = RedisConstants.LOCK_SHOP_KEY + id;
-        boolean acquired = tryLock(lockKey);
+        String token = tryLock(lockKey);
 
         // 注意：这里是关键优化！获取锁成功后，再次检查一遍缓存是否已更新
-        if (acquired) {
+        if (token != null) {
             try {
                 // 双重检查：再次读取一次缓存（可能其他线程已经重建完成）
                 String jsonAfterLock = stringRedisTemplate.opsForValue().get(key);
                 if (!StrUtil.isBlank(jsonAfterLock)) {
                     RedisData newRedisData = JSONUtil.toBean(jsonAfterLock, RedisData.class);
                     if (newRedisData.getExpireTime().isAfter(LocalDateTime.now())) {
-                        // 已经被其他线程重建好了，直接返回最新数据
+                        // 已经被其他线程重建好了，直接返回最新数据（未提交重建任务，这里释放锁）
                         log.debug("双重检查发现缓存已被重建，直接返回最新数据");
+                        unLock(lockKey, token);
                         return JSONUtil.toBean((JSONObject) newRedisData.getData(), type);
                     }
                 }
 
                 // 确认还是过期，才真正执行重建
                 log.debug("获取锁成功，开始重建缓存");
-                CACHE_REBUILD_EXECUTOR.submit(() -> {
+                rebuildExecutor.submit(() -> {
                     try {
                         // 查询数据库
                         R freshData = dbFallback.apply(id);
@@ -124,13 +862,13 @@ public class CacheClient {
                     } catch (Exception e) {
                         throw new RuntimeException("缓存重建失败", e);
                     } finally {
-                        unLock(lockKey);
+                        unLock(lockKey, token);
                     }
                 });
 
             } catch (Exception e) {
                 // 即使这里抛异常，也要确保释放锁
-                unLock(lockKey);
+                unLock(lockKey, token);
                 throw e;
             }
         }
@@ -138,13 +876,47 @@ public class CacheClient {
         // 5. 返回旧数据（无论是没拿到锁，还是拿到锁但已提交重建任务）
         return r;
     }
-    //尝试获取锁
-    private boolean tryLock(String key) {
-        Boolean flag = stringRedisTemplate.opsForValue().setIfAbsent(key, "1", 10, TimeUnit.SECONDS);
-        return BooleanUtil.isTrue(flag);
+    //尝试获取锁，成功时返回本次加锁的 token（释放时校验归属），失败返回 null
+    private String tryLock(String key) {
+        String token = IdUtil.fastSimpleUUID();
+        Boolean flag = stringRedisTemplate.opsForValue().setIfAbsent(key, token, 10, TimeUnit.SECONDS);
+        return BooleanUtil.isTrue(flag) ? token : null;
     }
-    //释放锁
-    private void unLock(String key) {
-        stringRedisTemplate.delete(key);
+    //释放锁：只删除自己持有的锁，重建超过 10 秒锁已过期并被他人获取时不会误删
+    private void unLock(String key, String token) {
+        stringRedisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(key), token);
+    }
+
+    /**
+     * 单个 key 的提前刷新状态
+     */
+    private static final class RefreshState {
+        private final AtomicBoolean busy = new AtomicBoolean(false);
+        private final LongAdder hits = new LongAdder();
+        private volatile long windowStart = System.currentTimeMillis();
+        private volatile double lastRate;
+        /**
+         * Redis 中的过期时间（毫秒时间戳），0 表示未知
+         */
+        private volatile long expireAtMillis;
+        /**
+         * 上次回源耗时（毫秒）
+         */
+        private volatile long deltaMillis;
+
+        /**
+         * 记录一次访问并返回访问频率（次/秒）：取上个完整窗口与当前窗口（按整窗计）的较大者。
+         * 并发翻转窗口时可能少计几次访问，对概率判断没有影响，换来热点路径上无锁
+         */
+        double recordAccess(long now, long windowMillis) {
+            hits.increment();
+            long elapsed = now - windowStart;
+            if (elapsed >= windowMillis) {
+                lastRate = hits.sumThenReset() * 1000.0 / elapsed;
+                windowStart = now;
+                return lastRate;
+            }
+            return Math.max(lastRate, hits.sum() * 1000.0 / windowMillis);
+        }
     }
 }
@@ -0,0 +1,492 @@
+package com.neozeng.trackerserve.util;
+
+import com.neozeng.trackerserve.mapper.ShortLinkMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 点击量内存聚合器
+ * 重定向时只在 JVM 内对短码计数（分段 + CAS，无锁），由定时任务每隔 N 毫秒把增量一次性管道写入 Redis。
+ * Redis 命令数只与每个周期内的“不同短码数”相关，而不再与原始点击量成正比。
+ * 每个短码的记账由 lua/click_accounting.lua 在 Redis 端原子完成，越过阈值的点击转入待同步 Hash，
+ * 再由 lua/claim_pending_clicks.lua 整体认领到本节点的在途 Hash，逐条写入数据库成功后才从在途 Hash 删除；
+ * 节点宕机留下的在途 Hash 在其租约过期后由 lua/reclaim_inflight_clicks.lua 并回待同步 Hash。
+ * <p>
+ * 计数器被刷出时会被标记为“已退役”（负数）并从分段中移除，
+ * 并发写入方发现退役后重新创建计数器，保证不丢失任何一次点击。
+ * <p>
+ * 每次刷出是一个带编号的批次，记账脚本按批次标记去重：管道执行中途失败（超时、连接断开）时
+ * 无法得知哪些命令已经执行，整批原样保留并在下次刷出时先重发，已执行过的短码被脚本跳过，不会重复计数。
+ * <p>
+ * 每次取出的增量同时喂给 {@link HotKeyDetector}；被判定为热点的短码，增量先在本地合并，
+ * 每 hot-flush-interval-ms 才写入 Redis 一次，避免单个爆款链接的记账命令集中打到同一个分片。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ClickAggregator {
+
+    private static final long RETIRED = Long.MIN_VALUE;
+    private static final int SYNC_THRESHOLD = 100;
+
+    private static final DefaultRedisScript<Long> CLICK_ACCOUNTING_SCRIPT;
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> CLAIM_PENDING_SCRIPT;
+    private static final DefaultRedisScript<Long> RECLAIM_INFLIGHT_SCRIPT;
+
+    static {
+        CLICK_ACCOUNTING_SCRIPT = new DefaultRedisScript<>();
+        CLICK_ACCOUNTING_SCRIPT.setLocation(new ClassPathResource("lua/click_accounting.lua"));
+        CLICK_ACCOUNTING_SCRIPT.setResultType(Long.class);
+
+        CLAIM_PENDING_SCRIPT = new DefaultRedisScript<>();
+        CLAIM_PENDING_SCRIPT.setLocation(new ClassPathResource("lua/claim_pending_clicks.lua"));
+        CLAIM_PENDING_SCRIPT.setResultType(List.class);
+
+        RECLAIM_INFLIGHT_SCRIPT = new DefaultRedisScript<>();
+        RECLAIM_INFLIGHT_SCRIPT.setLocation(new ClassPathResource("lua/reclaim_inflight_clicks.lua"));
+        RECLAIM_INFLIGHT_SCRIPT.setResultType(Long.class);
+    }
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ShortLinkMapper shortLinkMapper;
+    private final LinkCacheLayout linkCacheLayout;
+    private final ExecutorRegistry executorRegistry;
+    private final HotKeyDetector hotKeyDetector;
+
+    /**
+     * 分段数（向上取整为 2 的幂），不同线程落到不同分段，热点短码的计数竞争被分散
+     */
+    @Value("${tracker.clicks.stripes:16}")
+    private int stripeCount;
+
+    /**
+     * 未刷出的点击总数上限，超过后立即触发一次刷出，限制宕机时可能丢失的数据量
+     */
+    @Value("${tracker.clicks.max-pending-clicks:100000}")
+    private long maxPendingClicks;
+
+    /**
+     * 热点短码增量合并写入 Redis 的周期
+     */
+    @Value("${tracker.hot-keys.hot-flush-interval-ms:5000}")
+    private long hotFlushIntervalMs;
+
+    /**
+     * 关闭时等待进行中的刷出结束的最长时间
+     */
+    @Value("${tracker.clicks.shutdown-timeout-ms:10000}")
+    private long shutdownTimeoutMs;
+
+    private ConcurrentHashMap<String, ClickCounter>[] stripes;
+    private int stripeMask;
+
+    private final AtomicLong pendingClicks = new AtomicLong();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean(false);
+
+    /**
+     * 热点短码暂缓写入的增量（只由持有 flushLock 的刷出线程修改）
+     */
+    private final ConcurrentHashMap<String, ClickDelta> heldHotDeltas = new ConcurrentHashMap<>();
+    private long lastHotFlushMillis = System.currentTimeMillis();
+
+    /**
+     * 批次标记的存活时间：写入失败的批次需在此时间内重发成功，超过后重发退化为至少一次
+     */
+    @Value("${tracker.clicks.batch-marker-ttl-seconds:3600}")
+    private long batchMarkerTtlSeconds;
+
+    /**
+     * 本节点 ID（每次启动生成），与递增序号组成批次标记 key
+     */
+    private final String nodeId = UUID.randomUUID().toString().replace("-", "");
+    private long batchSeq;
+
+    /**
+     * 节点租约时长：认领时续期；应明显大于一次写库所需时间，否则仍在写库的节点会被当作宕机回收
+     */
+    @Value("${tracker.clicks.node-lease-seconds:300}")
+    private long nodeLeaseSeconds;
+
+    /**
+     * 写入 Redis 失败、等待原样重发的批次（只由持有 flushLock 的刷出线程访问）
+     */
+    private ClickBatch failedBatch;
+    /**
+     * 超过未刷出上限时触发立即刷出；同一时刻最多一个在途请求，队列满直接丢弃（定时刷出兜底）
+     */
+    private BoundedExecutor flushTrigger;
+
+    @PostConstruct
+    @SuppressWarnings("unchecked")
+    public void init() {
+        int size = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        stripes = new ConcurrentHashMap[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ConcurrentHashMap<>();
+        }
+        stripeMask = size - 1;
+        flushTrigger = executorRegistry.create("click-flush", 1, 1, BoundedExecutor.RejectPolicy.DROP);
+        loadScript();
+        log.info("点击量聚合器已初始化: stripes={}, maxPendingClicks={}", size, maxPendingClicks);
+    }
+
+    /**
+     * 记录一次点击（纯内存操作）
+     * @param shortCode 短码
+     * @param userId    短链接归属用户，刷出时用于更新用户排行榜，可为 null
+     */
+    public void record(String shortCode, Long userId) {
+        add(shortCode, userId, 1);
+        if (pendingClicks.incrementAndGet() >= maxPendingClicks && flushRequested.compareAndSet(false, true)) {
+            boolean accepted = flushTrigger.submit(() -> {
+                flushRequested.set(false);
+                flush(true);
+            });
+            if (!accepted) {
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    /**
+     * 定时把内存中的增量刷入 Redis
+     */
+    @Scheduled(fixedDelayString = "${tracker.clicks.flush-interval-ms:1000}")
+    public void flush() {
+        flush(false);
+    }
+
+    /**
+     * @param releaseHot 是否同时写出热点短码暂缓的增量（未刷出点击过多或关闭时）
+     */
+    private void flush(boolean releaseHot) {
+        if (!flushLock.tryLock()) {
+            return;
+        }
+        try {
+            doFlush(releaseHot);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 执行一次刷出，调用方必须持有 flushLock
+     */
+    private void doFlush(boolean releaseHot) {
+        if (failedBatch != null) {
+            try {
+                writeToRedis(failedBatch);
+                pendingClicks.addAndGet(-failedBatch.total);
+                log.info("重发点击量批次成功: 短码 {} 个, 点击 {} 次", failedBatch.shortCodes.size(), failedBatch.total);
+                failedBatch = null;
+            } catch (Exception e) {
+                // 新的点击继续留在内存计数器中，等 Redis 恢复后再刷出
+                log.error("重发点击量批次失败，等待下次刷出: 短码 {} 个", failedBatch.shortCodes.size(), e);
+                return;
+            }
+        }
+        Map<String, ClickDelta> deltas = drain();
+        if (hotKeyDetector.isEnabled()) {
+            deltas.forEach((shortCode, delta) -> hotKeyDetector.offer(shortCode, delta.getClicks()));
+            holdBackHotDeltas(deltas, releaseHot);
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+        ClickBatch batch = new ClickBatch(RedisConstants.CLICK_BATCH_KEY + nodeId + ":" + (++batchSeq), deltas);
+        pendingClicks.addAndGet(-batch.total);
+        try {
+            writeToRedis(batch);
+            log.debug("点击量刷出完成: 短码 {} 个, 点击 {} 次", deltas.size(), batch.total);
+        } catch (Exception e) {
+            // 部分命令可能已在服务端执行，不能把增量放回计数器（会重复计数），整批保留等待原样重发
+            log.error("点击量刷入 Redis 失败，批次保留等待下次重发: 短码 {} 个", deltas.size(), e);
+            failedBatch = batch;
+            pendingClicks.addAndGet(batch.total);
+            return;
+        }
+        try {
+            syncPendingToDatabase();
+        } catch (Exception e) {
+            log.error("同步待入库点击量失败，等待下次刷出时重试", e);
+        }
+    }
+
+    /**
+     * 关闭时必须等待正在进行的刷出结束，再取出其后记录的点击与热点暂缓的增量一并写出；
+     * 不能像定时刷出那样 tryLock 失败就返回
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (!flushLock.tryLock(shutdownTimeoutMs, TimeUnit.MILLISECONDS)) {
+            log.error("等待进行中的点击量刷出超时（{}ms），未刷出的点击将丢失: 约 {} 次", shutdownTimeoutMs, pendingClicks.get());
+            return;
+        }
+        try {
+            doFlush(true);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * 热点短码本周期的增量转入暂缓区；到达合并周期（或要求全部写出）时把暂缓区整体并回本次刷出
+     */
+    private void holdBackHotDeltas(Map<String, ClickDelta> deltas, boolean releaseHot) {
+        deltas.entrySet().removeIf(entry -> {
+            if (!hotKeyDetector.isHot(entry.getKey())) {
+                return false;
+            }
+            ClickDelta delta = entry.getValue();
+            heldHotDeltas.computeIfAbsent(entry.getKey(), k -> new ClickDelta(delta.getUserId())).clicks += delta.getClicks();
+            return true;
+        });
+        long now = System.currentTimeMillis();
+        if (heldHotDeltas.isEmpty() || (!releaseHot && now - lastHotFlushMillis < hotFlushIntervalMs)) {
+            return;
+        }
+        heldHotDeltas.forEach((shortCode, held) ->
+                deltas.computeIfAbsent(shortCode, k -> new ClickDelta(held.getUserId())).clicks += held.getClicks());
+        heldHotDeltas.clear();
+        lastHotFlushMillis = now;
+    }
+
+    /**
+     * 某短码在本地暂缓、尚未写入 Redis 的点击数
+     */
+    public long getHeldClicks(String shortCode) {
+        ClickDelta held = heldHotDeltas.get(shortCode);
+        return held != null ? held.getClicks() : 0;
+    }
+
+    private void add(String shortCode, Long userId, long delta) {
+        ConcurrentHashMap<String, ClickCounter> stripe = stripes[(int) (Thread.currentThread().getId() & stripeMask)];
+        while (true) {
+            ClickCounter counter = stripe.computeIfAbsent(shortCode, k -> new ClickCounter(userId));
+            long current = counter.get();
+            if (current < 0) {
+                // 计数器已被刷出线程退役，移除后重试
+                stripe.remove(shortCode, counter);
+                continue;
+            }
+            if (counter.compareAndSet(current, current + delta)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 取出所有分段中的增量并合并；被取出的计数器退役并移除，避免 Map 无限增长
+     */
+    private Map<String, ClickDelta> drain() {
+        Map<String, ClickDelta> deltas = new HashMap<>();
+        for (ConcurrentHashMap<String, ClickCounter> stripe : stripes) {
+            for (Map.Entry<String, ClickCounter> entry : stripe.entrySet()) {
+                ClickCounter counter = entry.getValue();
+                long value = counter.getAndSet(RETIRED);
+                stripe.remove(entry.getKey(), counter);
+                if (value > 0) {
+                    deltas.computeIfAbsent(entry.getKey(), k -> new ClickDelta(counter.userId)).clicks += value;
+                }
+            }
+        }
+        return deltas;
+    }
+
+    /**
+     * 一次管道批量执行记账脚本（EVALSHA），每个短码一条命令：
+     * 计数器、全局榜、用户榜以及超过阈值部分转入待同步 Hash 都在脚本内原子完成；
+     * 脚本先在批次标记上置位短码的序号，已置位（本批次重发）的短码直接跳过
+     */
+    private void writeToRedis(ClickBatch batch) {
+        List<String> shortCodes = batch.shortCodes;
+        Map<String, ClickDelta> deltas = batch.deltas;
+        String sha1 = CLICK_ACCOUNTING_SCRIPT.getSha1();
+        byte[] markerKey = bytes(batch.markerKey);
+        byte[] markerTtl = bytes(String.valueOf(batchMarkerTtlSeconds));
+        byte[] globalRankingKey = bytes(RedisConstants.SHORT_LINK_GLOBAL_RANKING_KEY);
+        byte[] pendingKey = bytes(RedisConstants.SHORT_LINK_PENDING_CLICKS_KEY);
+        byte[] threshold = bytes(String.valueOf(SYNC_THRESHOLD));
+        try {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                boolean hashLayout = linkCacheLayout.isHashLayout();
+                for (int i = 0; i < shortCodes.size(); i++) {
+                    String shortCode = shortCodes.get(i);
+                    byte[] clicksKey = bytes(linkCacheLayout.clicksKey(shortCode));
+                    byte[] member = bytes(shortCode);
+                    ClickDelta clickDelta = deltas.get(shortCode);
+                    byte[] delta = bytes(String.valueOf(clickDelta.getClicks()));
+                    Long userId = clickDelta.getUserId();
+                    List<byte[]> keysAndArgs = new ArrayList<>(11);
+                    keysAndArgs.add(clicksKey);
+                    keysAndArgs.add(globalRankingKey);
+                    keysAndArgs.add(pendingKey);
+                    keysAndArgs.add(markerKey);
+                    if (userId != null) {
+                        keysAndArgs.add(bytes(RedisConstants.SHORT_LINK_RANKING_KEY + userId));
+                    }
+                    int numKeys = keysAndArgs.size();
+                    keysAndArgs.add(member);
+                    keysAndArgs.add(delta);
+                    keysAndArgs.add(threshold);
+                    keysAndArgs.add(bytes(String.valueOf(i)));
+                    keysAndArgs.add(markerTtl);
+                    if (hashLayout) {
+                        // hash 布局：计数器是桶内以短码为 field 的值
+                        keysAndArgs.add(member);
+                    }
+                    connection.scriptingCommands().evalSha(sha1, ReturnType.INTEGER, numKeys,
+                            keysAndArgs.toArray(new byte[0][]));
+                }
+                return null;
+            });
+        } catch (Exception e) {
+            // 可能是 Redis 重启导致脚本缓存丢失（NOSCRIPT），重新加载后由上层保留批次重发
+            loadScript();
+            throw e;
+        }
+    }
+
+    /**
+     * 认领待同步 Hash 中的点击量到本节点的在途 Hash 并写入数据库；
+     * 每条写库成功后才从在途 Hash 删除，失败的留在在途 Hash 中，下次认领时一并重试
+     * （写库成功与删除之间宕机会导致该条被重复同步一次：至少一次，不会丢失）
+     */
+    private void syncPendingToDatabase() {
+        String inflightKey = RedisConstants.SHORT_LINK_INFLIGHT_CLICKS_KEY + nodeId;
+        List<String> entries = stringRedisTemplate.execute(CLAIM_PENDING_SCRIPT,
+                List.of(RedisConstants.SHORT_LINK_PENDING_CLICKS_KEY, inflightKey,
+                        RedisConstants.SHORT_LINK_CLICK_NODE_LEASE_KEY + nodeId, RedisConstants.SHORT_LINK_CLICK_NODES_KEY),
+                nodeId, String.valueOf(nodeLeaseSeconds));
+        if (entries == null || entries.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i + 1 < entries.size(); i += 2) {
+            String shortCode = entries.get(i);
+            int syncClicks = Integer.parseInt(entries.get(i + 1));
+            if (syncClicks <= 0) {
+                stringRedisTemplate.opsForHash().delete(inflightKey, shortCode);
+                continue;
+            }
+            log.info("短链接 {} 达到同步阈值，正在将 {} 次点击同步至数据库", shortCode, syncClicks);
+            try {
+                shortLinkMapper.updateTotalClicks(shortCode, syncClicks);
+            } catch (Exception e) {
+                log.error("短链接 {} 点击量同步数据库失败，保留在在途队列等待重试", shortCode, e);
+                continue;
+            }
+            stringRedisTemplate.opsForHash().delete(inflightKey, shortCode);
+        }
+    }
+
+    /**
+     * 回收租约已过期（节点已宕机）的在途点击量，并回待同步 Hash；启动时立即执行一次
+     * 只读取节点集合（节点数量级），不扫描 keyspace
+     */
+    @Scheduled(fixedDelayString = "${tracker.clicks.reclaim-interval-ms:60000}")
+    public void reclaimOrphanedInflightClicks() {
+        Set<String> nodes;
+        try {
+            nodes = stringRedisTemplate.opsForSet().members(RedisConstants.SHORT_LINK_CLICK_NODES_KEY);
+        } catch (Exception e) {
+            log.warn("读取点击量同步节点集合失败: {}", e.getMessage());
+            return;
+        }
+        if (nodes == null) {
+            return;
+        }
+        for (String node : nodes) {
+            if (node.equals(nodeId)) {
+                continue;
+            }
+            Long reclaimed = stringRedisTemplate.execute(RECLAIM_INFLIGHT_SCRIPT,
+                    List.of(RedisConstants.SHORT_LINK_PENDING_CLICKS_KEY, RedisConstants.SHORT_LINK_INFLIGHT_CLICKS_KEY + node,
+                            RedisConstants.SHORT_LINK_CLICK_NODE_LEASE_KEY + node, RedisConstants.SHORT_LINK_CLICK_NODES_KEY),
+                    node);
+            if (reclaimed != null && reclaimed > 0) {
+                log.warn("节点 {} 租约已过期，回收其未写入数据库的点击量: {} 个短码", node, reclaimed);
+            }
+        }
+    }
+
+    private void loadScript() {
+        try {
+            stringRedisTemplate.execute((RedisCallback<String>) connection ->
+                    connection.scriptingCommands().scriptLoad(bytes(CLICK_ACCOUNTING_SCRIPT.getScriptAsString())));
+        } catch (Exception e) {
+            log.warn("加载点击量记账脚本失败: {}", e.getMessage());
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 单个分段内某短码的计数器，同时携带归属用户
+     */
+    private static class ClickCounter extends AtomicLong {
+        private final Long userId;
+
+        ClickCounter(Long userId) {
+            this.userId = userId;
+        }
+    }
+
+    /**
+     * 一次刷出的批次：短码顺序固定，重发时每个短码在批次标记中的序号不变
+     */
+    private static class ClickBatch {
+        private final String markerKey;
+        private final List<String> shortCodes;
+        private final Map<String, ClickDelta> deltas;
+        private final long total;
+
+        ClickBatch(String markerKey, Map<String, ClickDelta> deltas) {
+            this.markerKey = markerKey;
+            this.shortCodes = new ArrayList<>(deltas.keySet());
+            this.deltas = deltas;
+            this.total = deltas.values().stream().mapToLong(ClickDelta::getClicks).sum();
+        }
+    }
+
+    /**
+     * 一个刷出周期内某短码的点击增量
+     */
+    @Getter
+    private static class ClickDelta {
+        private final Long userId;
+        private long clicks;
+
+        ClickDelta(Long userId) {
+            this.userId = userId;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.neozeng.trackerserve.util;
+
+import com.neozeng.trackerserve.exception.DownstreamBusyException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 下游并发隔离（舱壁）：按下游分别限制同时在途的调用数
+ * <p>
+ * 开启虚拟线程后请求线程几乎不受限，突发流量会把成千上万个线程同时压到连接池上排队，
+ * 直到各自的连接超时才失败。这里在进入连接池之前用信号量挡一层：
+ * 许可数不超过连接池大小，拿不到许可的调用等待 acquire-timeout-ms 后快速失败，
+ * 一个下游变慢也不会把其他下游的并发额度一起拖垮。
+ * 许可只在真正访问下游时持有，L1 缓存命中等本地路径不受影响。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DownstreamLimiter {
+
+    public enum Downstream {
+        MYSQL, REDIS, GEO
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * MySQL 同时在途的查询数，不应超过 Hikari 的 maximum-pool-size
+     */
+    @Value("${tracker.limits.mysql.max-concurrency:20}")
+    private int mysqlMaxConcurrency;
+
+    /**
+     * Redis 同时在途的命令数（Lettuce 连接可多路复用，可比连接池大）
+     */
+    @Value("${tracker.limits.redis.max-concurrency:200}")
+    private int redisMaxConcurrency;
+
+    /**
+     * IP 地理位置解析的并发数（离线库查询是纯 CPU 计算，与 CPU 核数同量级即可）
+     */
+    @Value("${tracker.limits.geo.max-concurrency:16}")
+    private int geoMaxConcurrency;
+
+    /**
+     * 拿不到许可时的最长等待时间（毫秒）
+     */
+    @Value("${tracker.limits.acquire-timeout-ms:500}")
+    private long acquireTimeoutMs;
+
+    private final Map<Downstream, Semaphore> semaphores = new EnumMap<>(Downstream.class);
+    private final Map<Downstream, Counter> rejectedCounters = new EnumMap<>(Downstream.class);
+
+    @PostConstruct
+    public void init() {
+        register(Downstream.MYSQL, mysqlMaxConcurrency);
+        register(Downstream.REDIS, redisMaxConcurrency);
+        register(Downstream.GEO, geoMaxConcurrency);
+        log.info("下游并发限制: mysql={}, redis={}, geo={}, acquireTimeoutMs={}",
+                mysqlMaxConcurrency, redisMaxConcurrency, geoMaxConcurrency, acquireTimeoutMs);
+    }
+
+    private void register(Downstream downstream, int permits) {
+        Semaphore semaphore = new Semaphore(permits);
+        semaphores.put(downstream, semaphore);
+        String name = downstream.name().toLowerCase();
+        Gauge.builder("downstream.inflight", semaphore, s -> permits - s.availablePermits())
+                .description("下游同时在途的调用数")
+                .tag("downstream", name)
+                .register(meterRegistry);
+        rejectedCounters.put(downstream, Counter.builder("downstream.rejected")
+                .description("等待许可超时被拒绝的调用数")
+                .tag("downstream", name)
+                .register(meterRegistry));
+    }
+
+    /**
+     * 在下游许可内执行调用
+     * @throws DownstreamBusyException 等待许可超时或被中断
+     */
+    public <T> T call(Downstream downstream, Supplier<T> action) {
+        Semaphore semaphore = semaphores.get(downstream);
+        try {
+            if (!semaphore.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                rejectedCounters.get(downstream).increment();
+                throw new DownstreamBusyException("下游繁忙，请稍后重试: " + downstream);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DownstreamBusyException("等待下游许可被中断: " + downstream, e);
+        }
+        try {
+            return action.get();
+        } finally {
+            semaphore.release();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.neozeng.trackerserve.util;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按任务类型创建并管理 {@link BoundedExecutor}
+ * <p>
+ * 每个执行器的线程数、队列容量与拒绝策略可通过
+ * {@code tracker.executors.<name>.threads / queue-capacity / rejection-policy} 覆盖，
+ * 未配置时使用创建方给出的默认值。应用关闭时统一停止所有执行器。
+ * <p>
+ * 执行器固定使用平台线程，不随 spring.threads.virtual.enabled 切换：固定线程数就是该类任务的并发上限。
+ * 依赖 VisitLogWriter / VisitLogSpillStore 只是为了停机顺序：Spring 先销毁本对象（排空 visit-log 执行器），
+ * 之后写入器才停止，排空时提交的访问日志不会落到已停止的写入器里。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@DependsOn({"visitLogWriter", "visitLogSpillStore"})
+public class ExecutorRegistry {
+
+    private static final String PREFIX = "tracker.executors.";
+
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, BoundedExecutor> executors = new ConcurrentHashMap<>();
+
+    public BoundedExecutor create(String name, int threads, int queueCapacity, BoundedExecutor.RejectPolicy policy) {
+        return create(name, threads, queueCapacity, policy, null);
+    }
+
+    /**
+     * 创建命名执行器，同名执行器只允许创建一次
+     * @param spillHandler 溢出处理器，仅在策略为 spill 时使用，可为 null
+     */
+    public BoundedExecutor create(String name, int threads, int queueCapacity, BoundedExecutor.RejectPolicy policy,
+                                  BoundedExecutor.SpillHandler spillHandler) {
+        int configuredThreads = environment.getProperty(PREFIX + name + ".threads", Integer.class, threads);
+        int configuredCapacity = environment.getProperty(PREFIX + name + ".queue-capacity", Integer.class, queueCapacity);
+        String configuredPolicy = environment.getProperty(PREFIX + name + ".rejection-policy");
+        BoundedExecutor.RejectPolicy effectivePolicy =
+                configuredPolicy != null ? BoundedExecutor.RejectPolicy.parse(configuredPolicy) : policy;
+
+        BoundedExecutor executor = new BoundedExecutor(name, configuredThreads, configuredCapacity,
+                effectivePolicy, spillHandler, meterRegistry);
+        if (executors.putIfAbsent(name, executor) != null) {
+            executor.shutdownNow();
+            throw new IllegalStateException("执行器已存在: " + name);
+        }
+        log.info("执行器 {} 已创建: threads={}, queueCapacity={}, rejectionPolicy={}",
+                name, configuredThreads, configuredCapacity, effectivePolicy);
+        return executor;
+    }
+
+    /**
+     * 停止接收新任务，并给已排队的任务一小段时间执行完
+     */
+    @PreDestroy
+    public void shutdown() {
+        executors.values().forEach(BoundedExecutor::shutdown);
+        for (BoundedExecutor executor : executors.values()) {
+            try {
+                if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                    log.warn("执行器 {} 未在 5 秒内停止，剩余 {} 个任务被放弃", executor.getName(), executor.getQueueDepth());
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                executor.shutdownNow();
+            }
+        }
+    }
+}
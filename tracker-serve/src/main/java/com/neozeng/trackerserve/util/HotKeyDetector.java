@@ -0,0 +1,191 @@
+package com.neozeng.trackerserve.util;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 热点短码识别
+ * <p>
+ * 由 {@link ClickAggregator} 在每次刷出时把本周期各短码的点击增量喂进来，用 Space-Saving 算法
+ * 只跟踪固定数量（capacity）的候选，内存与短码总数无关。每个统计窗口结束时，
+ * 保证计数（count - error）折算的点击速率超过 hot-rate-per-second 的短码被判定为热点：
+ * <ul>
+ *     <li>元数据在 {@link CacheClient} 中钉住，不会被 L1 容量淘汰；与 L1 一样每 expire-seconds 从 Redis 重新加载一次</li>
+ *     <li>点击增量在 ClickAggregator 中合并 hot-flush-interval-ms 后才写入 Redis，减少同一 key 上的 EVAL / ZINCRBY</li>
+ * </ul>
+ * 已是热点的短码速率低于 cool-rate-per-second 才移出，避免在阈值附近反复切换。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HotKeyDetector {
+
+    private final CacheClient cacheClient;
+    private final LinkCacheLayout linkCacheLayout;
+    private final MeterRegistry meterRegistry;
+
+    @Getter
+    @Value("${tracker.hot-keys.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * Space-Saving 跟踪的候选数，应明显大于 max-hot
+     */
+    @Value("${tracker.hot-keys.capacity:200}")
+    private int capacity;
+
+    /**
+     * 同时钉住的热点短码上限
+     */
+    @Value("${tracker.hot-keys.max-hot:50}")
+    private int maxHot;
+
+    @Value("${tracker.hot-keys.hot-rate-per-second:50}")
+    private double hotRatePerSecond;
+
+    @Value("${tracker.hot-keys.cool-rate-per-second:10}")
+    private double coolRatePerSecond;
+
+    /**
+     * Space-Saving 候选：短码 -> {count, error}；只在持有本对象锁时访问
+     */
+    private final Map<String, long[]> counters = new HashMap<>();
+    private long windowStartMillis = System.currentTimeMillis();
+
+    /**
+     * 当前热点（不可变快照），刷出线程每个周期都会读取
+     */
+    private volatile Map<String, HotKey> hotKeys = Collections.emptyMap();
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("shortlink.hot.keys", this, d -> d.hotKeys.size())
+                .description("当前被识别为热点并钉在本地内存的短码数")
+                .register(meterRegistry);
+        if (enabled) {
+            log.info("热点短码识别已开启: capacity={}, maxHot={}, hotRate={}/s, coolRate={}/s",
+                    capacity, maxHot, hotRatePerSecond, coolRatePerSecond);
+        }
+    }
+
+    /**
+     * 记录一个刷出周期内某短码的点击增量
+     */
+    public synchronized void offer(String shortCode, long clicks) {
+        long[] counter = counters.get(shortCode);
+        if (counter != null) {
+            counter[0] += clicks;
+            return;
+        }
+        if (counters.size() < capacity) {
+            counters.put(shortCode, new long[]{clicks, 0});
+            return;
+        }
+        // 候选已满：替换计数最小的候选，新短码继承其计数作为误差上界
+        String minCode = null;
+        long min = Long.MAX_VALUE;
+        for (Map.Entry<String, long[]> entry : counters.entrySet()) {
+            if (entry.getValue()[0] < min) {
+                min = entry.getValue()[0];
+                minCode = entry.getKey();
+            }
+        }
+        counters.remove(minCode);
+        counters.put(shortCode, new long[]{min + clicks, min});
+    }
+
+    public boolean isHot(String shortCode) {
+        return hotKeys.containsKey(shortCode);
+    }
+
+    /**
+     * 当前热点，按速率从高到低
+     */
+    public List<HotKey> getHotKeys() {
+        List<HotKey> list = new ArrayList<>(hotKeys.values());
+        list.sort(Comparator.comparingDouble(HotKey::getRatePerSecond).reversed());
+        return list;
+    }
+
+    /**
+     * 窗口结束：按保证计数计算速率，更新热点集合并同步钉住 / 解除钉住，然后清空候选开始下一个窗口
+     */
+    @Scheduled(fixedDelayString = "${tracker.hot-keys.window-ms:10000}")
+    public void evaluate() {
+        if (!enabled) {
+            return;
+        }
+        Map<String, Double> rates = new HashMap<>();
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            double seconds = Math.max(1, now - windowStartMillis) / 1000.0;
+            counters.forEach((code, counter) -> rates.put(code, (counter[0] - counter[1]) / seconds));
+            counters.clear();
+            windowStartMillis = now;
+        }
+
+        Map<String, HotKey> previous = hotKeys;
+        List<Map.Entry<String, Double>> candidates = new ArrayList<>();
+        for (Map.Entry<String, Double> entry : rates.entrySet()) {
+            double threshold = previous.containsKey(entry.getKey()) ? coolRatePerSecond : hotRatePerSecond;
+            if (entry.getValue() >= threshold) {
+                candidates.add(entry);
+            }
+        }
+        candidates.sort(Map.Entry.<String, Double>comparingByValue().reversed());
+
+        Map<String, HotKey> next = new LinkedHashMap<>();
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Double> entry : candidates) {
+            if (next.size() >= maxHot) {
+                break;
+            }
+            HotKey old = previous.get(entry.getKey());
+            next.put(entry.getKey(), new HotKey(entry.getKey(), entry.getValue(), old != null ? old.getHotSince() : now));
+        }
+
+        for (String code : next.keySet()) {
+            if (!previous.containsKey(code)) {
+                cacheClient.pin(linkCacheLayout.metaKey(code));
+                log.info("短码 {} 成为热点: {} 次/秒，元数据钉在本地内存，点击量本地合并", code,
+                        String.format("%.1f", next.get(code).getRatePerSecond()));
+            }
+        }
+        for (String code : previous.keySet()) {
+            if (!next.containsKey(code)) {
+                cacheClient.unpin(linkCacheLayout.metaKey(code));
+                log.info("短码 {} 不再是热点，解除钉住", code);
+            }
+        }
+        hotKeys = Collections.unmodifiableMap(next);
+    }
+
+    /**
+     * 热点短码快照
+     */
+    @Getter
+    @RequiredArgsConstructor
+    public static class HotKey {
+        private final String shortCode;
+        /**
+         * 上一个窗口内的点击速率下限（次/秒）
+         */
+        private final double ratePerSecond;
+        private final long hotSince;
+    }
+}
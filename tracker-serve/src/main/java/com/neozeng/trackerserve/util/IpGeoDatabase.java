@@ -0,0 +1,332 @@
+package com.neozeng.trackerserve.util;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 离线 IP 地理位置库（只读、不可变）
+ * <p>
+ * 二进制文件格式（大端序），整体通过 mmap 映射，区间表不复制到堆内：
+ * <pre>
+ * header   : magic(4) "TKIP" | version(4) | ipv4Count(4) | ipv6Count(4) | locationCount(4)
+ * ipv4 区间: start(4) | end(4) | locationIndex(4)                         按 start 升序
+ * ipv6 区间: startHi(8) | startLo(8) | endHi(8) | endLo(8) | locationIndex(4) 按 start 升序
+ * 位置字符串: length(2) | UTF-8 bytes，已按“国家-省份-城市”格式化并去重
+ * </pre>
+ * 也可以直接提供 CSV 文本（每行 startIp,endIp,国家,省份,城市，# 开头为注释），
+ * 加载时会先编译为上述二进制格式再映射。查询为区间表上的二分查找，无网络访问。
+ */
+public final class IpGeoDatabase {
+
+    private static final int MAGIC = 0x544B4950;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 20;
+    private static final int IPV4_ENTRY_SIZE = 12;
+    private static final int IPV6_ENTRY_SIZE = 36;
+
+    private final MappedByteBuffer buffer;
+    private final int ipv4Count;
+    private final int ipv6Count;
+    private final int ipv4Offset;
+    private final int ipv6Offset;
+    private final String[] locations;
+
+    private IpGeoDatabase(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("不是有效的 IP 地理位置库文件");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IllegalArgumentException("不支持的 IP 地理位置库版本: " + version);
+        }
+        this.ipv4Count = buffer.getInt(8);
+        this.ipv6Count = buffer.getInt(12);
+        int locationCount = buffer.getInt(16);
+        this.ipv4Offset = HEADER_SIZE;
+        this.ipv6Offset = ipv4Offset + ipv4Count * IPV4_ENTRY_SIZE;
+
+        // 位置字符串数量很少（城市级别），一次性解码，避免每次查询都分配解码
+        this.locations = new String[locationCount];
+        ByteBuffer strings = buffer.duplicate();
+        strings.position(ipv6Offset + ipv6Count * IPV6_ENTRY_SIZE);
+        for (int i = 0; i < locationCount; i++) {
+            byte[] bytes = new byte[strings.getShort() & 0xFFFF];
+            strings.get(bytes);
+            locations[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * 打开库文件：二进制格式直接映射，否则按 CSV 编译到临时文件后映射
+     */
+    public static IpGeoDatabase open(Path path) throws IOException {
+        if (isCompiled(path)) {
+            return map(path);
+        }
+        Path compiled = Files.createTempFile("ip-geo-", ".tkdb");
+        try {
+            compile(path, compiled);
+            return map(compiled);
+        } finally {
+            // 映射建立后即可删除文件（Linux 下映射仍然有效；其他系统删除失败则退出时清理）
+            try {
+                Files.deleteIfExists(compiled);
+            } catch (IOException e) {
+                compiled.toFile().deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * 查询 IP 所在位置
+     * @return “国家-省份-城市”，库中不存在或不是合法 IP 字面量时返回 null
+     */
+    public String lookup(String ip) {
+        byte[] address = parseLiteral(ip);
+        if (address == null) {
+            return null;
+        }
+        return address.length == 4 ? lookupV4(address) : lookupV6(address);
+    }
+
+    public int getIpv4Count() {
+        return ipv4Count;
+    }
+
+    public int getIpv6Count() {
+        return ipv6Count;
+    }
+
+    private String lookupV4(byte[] address) {
+        int ip = ByteBuffer.wrap(address).getInt();
+        // 找到最后一个 start <= ip 的区间
+        int low = 0;
+        int high = ipv4Count - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int start = buffer.getInt(ipv4Offset + mid * IPV4_ENTRY_SIZE);
+            if (Integer.compareUnsigned(start, ip) <= 0) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (found < 0) {
+            return null;
+        }
+        int entry = ipv4Offset + found * IPV4_ENTRY_SIZE;
+        if (Integer.compareUnsigned(ip, buffer.getInt(entry + 4)) > 0) {
+            return null;
+        }
+        return locations[buffer.getInt(entry + 8)];
+    }
+
+    private String lookupV6(byte[] address) {
+        ByteBuffer wrapped = ByteBuffer.wrap(address);
+        long hi = wrapped.getLong();
+        long lo = wrapped.getLong();
+        int low = 0;
+        int high = ipv6Count - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int entry = ipv6Offset + mid * IPV6_ENTRY_SIZE;
+            if (compare128(buffer.getLong(entry), buffer.getLong(entry + 8), hi, lo) <= 0) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (found < 0) {
+            return null;
+        }
+        int entry = ipv6Offset + found * IPV6_ENTRY_SIZE;
+        if (compare128(hi, lo, buffer.getLong(entry + 16), buffer.getLong(entry + 24)) > 0) {
+            return null;
+        }
+        return locations[buffer.getInt(entry + 32)];
+    }
+
+    private static int compare128(long aHi, long aLo, long bHi, long bLo) {
+        int result = Long.compareUnsigned(aHi, bHi);
+        return result != 0 ? result : Long.compareUnsigned(aLo, bLo);
+    }
+
+    /**
+     * 只解析 IP 字面量，绝不触发 DNS 查询；IPv4 映射的 IPv6 地址（::ffff:a.b.c.d）按 IPv4 处理
+     */
+    private static byte[] parseLiteral(String ip) {
+        if (ip == null || ip.isEmpty()) {
+            return null;
+        }
+        String value = ip.trim();
+        if (value.indexOf(':') < 0) {
+            return parseIpv4(value);
+        }
+        int zone = value.indexOf('%');
+        if (zone >= 0) {
+            value = value.substring(0, zone);
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (Character.digit(c, 16) < 0 && c != ':' && c != '.') {
+                return null;
+            }
+        }
+        try {
+            // 只含十六进制数字、冒号和点的字符串会按 IPv6 字面量解析，不会走 DNS
+            InetAddress address = InetAddress.getByName(value);
+            if (address instanceof Inet4Address || address instanceof Inet6Address) {
+                return address.getAddress();
+            }
+        } catch (Exception ignored) {
+            // 非法地址
+        }
+        return null;
+    }
+
+    private static byte[] parseIpv4(String value) {
+        byte[] result = new byte[4];
+        int part = 0;
+        int current = -1;
+        for (int i = 0; i <= value.length(); i++) {
+            char c = i < value.length() ? value.charAt(i) : '.';
+            if (c == '.') {
+                if (current < 0 || part >= 4) {
+                    return null;
+                }
+                result[part++] = (byte) current;
+                current = -1;
+            } else if (c >= '0' && c <= '9') {
+                current = (current < 0 ? 0 : current * 10) + (c - '0');
+                if (current > 255) {
+                    return null;
+                }
+            } else {
+                return null;
+            }
+        }
+        return part == 4 ? result : null;
+    }
+
+    private static boolean isCompiled(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            byte[] head = in.readNBytes(4);
+            return head.length == 4 && ByteBuffer.wrap(head).getInt() == MAGIC;
+        }
+    }
+
+    private static IpGeoDatabase map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new IpGeoDatabase(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * 把 CSV（startIp,endIp,国家,省份,城市）编译为二进制库文件
+     */
+    public static void compile(Path csv, Path target) throws IOException {
+        List<Range> ipv4 = new ArrayList<>();
+        List<Range> ipv6 = new ArrayList<>();
+        Map<String, Integer> locationIndex = new HashMap<>();
+        List<String> locations = new ArrayList<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNo = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split(",", -1);
+                if (fields.length < 5) {
+                    throw new IllegalArgumentException("IP 库第 " + lineNo + " 行字段不足: " + line);
+                }
+                byte[] start = parseLiteral(fields[0]);
+                byte[] end = parseLiteral(fields[1]);
+                if (start == null || end == null || start.length != end.length) {
+                    throw new IllegalArgumentException("IP 库第 " + lineNo + " 行地址非法: " + line);
+                }
+                String location = formatLocation(fields[2].trim(), fields[3].trim(), fields[4].trim());
+                int index = locationIndex.computeIfAbsent(location, k -> {
+                    locations.add(k);
+                    return locations.size() - 1;
+                });
+                (start.length == 4 ? ipv4 : ipv6).add(new Range(start, end, index));
+            }
+        }
+        ipv4.sort(Comparator.comparing(Range::start, Arrays::compareUnsigned));
+        ipv6.sort(Comparator.comparing(Range::start, Arrays::compareUnsigned));
+
+        try (OutputStream out = Files.newOutputStream(target);
+             DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out))) {
+            data.writeInt(MAGIC);
+            data.writeInt(VERSION);
+            data.writeInt(ipv4.size());
+            data.writeInt(ipv6.size());
+            data.writeInt(locations.size());
+            for (Range range : ipv4) {
+                data.write(range.start());
+                data.write(range.end());
+                data.writeInt(range.locationIndex());
+            }
+            for (Range range : ipv6) {
+                data.write(range.start());
+                data.write(range.end());
+                data.writeInt(range.locationIndex());
+            }
+            for (String location : locations) {
+                byte[] bytes = location.getBytes(StandardCharsets.UTF_8);
+                data.writeShort(bytes.length);
+                data.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * 与原先在线查询保持一致的格式：国家-省份-城市，城市与省份相同（直辖市）时省略城市
+     */
+    static String formatLocation(String country, String region, String city) {
+        StringBuilder location = new StringBuilder();
+        if (!country.isEmpty()) {
+            location.append(country);
+        }
+        if (!region.isEmpty()) {
+            if (location.length() > 0) location.append("-");
+            location.append(region);
+        }
+        if (!city.isEmpty() && !city.equals(region)) {
+            if (location.length() > 0) location.append("-");
+            location.append(city);
+        }
+        return location.length() == 0 ? "未知" : location.toString();
+    }
+
+    private record Range(byte[] start, byte[] end, int locationIndex) {
+    }
+}
@@ -1,35 +1,103 @@
 package com.neozeng.trackerserve.util;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.neozeng.trackerserve.exception.DownstreamBusyException;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.time.Duration;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
 
 /**
  * IP 地理位置查询工具类
- * 使用免费的 IP 地理位置查询 API
+ * 使用本地离线 IP 库（{@link IpGeoDatabase}），查询为内存映射区间表上的二分查找，不访问网络。
+ * 库文件路径由 {@code tracker.geo.db-path} 指定，定时检查文件修改时间，变化后重新加载并原子替换，无需重启。
  */
 @Slf4j
 @Component
 public class IpLocationUtils {
 
-    private static final HttpClient httpClient = HttpClient.newBuilder()
-            .connectTimeout(Duration.ofSeconds(3))
-            .build();
+    /**
+     * 当前生效的 IP 库；为 null 表示未配置或加载失败，此时所有公网 IP 返回“未知”
+     */
+    private static volatile IpGeoDatabase database;
+
+    @Value("${tracker.geo.db-path:}")
+    private String dbPath;
+
+    /**
+     * 异步查询使用的独立执行器（tracker.executors.geo.*），队列满时由调用线程直接查询
+     */
+    private static volatile BoundedExecutor asyncExecutor;
+    private static volatile DownstreamLimiter downstreamLimiter;
+
+    @Autowired(required = false)
+    private ExecutorRegistry executorRegistry;
+
+    @Autowired(required = false)
+    private DownstreamLimiter limiter;
+
+    private volatile FileTime loadedModifiedTime;
+    private volatile long loadedSize = -1;
 
-    private static final ObjectMapper objectMapper = new ObjectMapper();
+    @PostConstruct
+    public void init() {
+        if (executorRegistry != null) {
+            asyncExecutor = executorRegistry.create("geo", 2, 1000, BoundedExecutor.RejectPolicy.CALLER_RUNS);
+        }
+        downstreamLimiter = limiter;
+        if (dbPath == null || dbPath.isBlank()) {
+            log.warn("未配置 tracker.geo.db-path，IP 地理位置将全部显示为“未知”");
+            return;
+        }
+        reloadIfChanged();
+    }
+
+    /**
+     * 定时检查库文件是否更新（修改时间或大小变化），变化则重新加载
+     * 更新库文件时建议先写临时文件再原子重命名，避免读到写了一半的文件
+     */
+    @Scheduled(fixedDelayString = "${tracker.geo.reload-interval-ms:60000}",
+            initialDelayString = "${tracker.geo.reload-interval-ms:60000}")
+    public void reloadIfChanged() {
+        if (dbPath == null || dbPath.isBlank()) {
+            return;
+        }
+        Path path = Paths.get(dbPath);
+        try {
+            if (!Files.isRegularFile(path)) {
+                if (database == null) {
+                    log.warn("IP 库文件不存在: {}", path.toAbsolutePath());
+                }
+                return;
+            }
+            FileTime modifiedTime = Files.getLastModifiedTime(path);
+            long size = Files.size(path);
+            if (modifiedTime.equals(loadedModifiedTime) && size == loadedSize) {
+                return;
+            }
+            long start = System.currentTimeMillis();
+            IpGeoDatabase loaded = IpGeoDatabase.open(path);
+            database = loaded;
+            loadedModifiedTime = modifiedTime;
+            loadedSize = size;
+            log.info("IP 库已加载: {}, IPv4 区间 {} 条, IPv6 区间 {} 条, 耗时 {}ms", path.toAbsolutePath(),
+                    loaded.getIpv4Count(), loaded.getIpv6Count(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            // 加载失败时继续使用旧库
+            log.error("加载 IP 库失败，继续使用当前版本: {}", path.toAbsolutePath(), e);
+        }
+    }
 
     /**
      * 根据 IP 地址查询地理位置
-     * 使用 ip-api.com 免费服务（无需 API Key，但有请求限制：45 次/分钟）
      *
-     * @param ip IP 地址
+     * @param ip IP 地址（IPv4 或 IPv6）
      * @return 地理位置描述，格式：国家-省份-城市，例如："中国-北京-北京"
      */
     public static String getLocation(String ip) {
@@ -39,60 +107,23 @@ public class IpLocationUtils {
         }
 
         // 2. 检查是否为本地回环地址
-        if ("127.0.0.1".equals(ip) || "localhost".equals(ip)) {
+        if ("127.0.0.1".equals(ip) || "localhost".equals(ip) || "::1".equals(ip) || "0:0:0:0:0:0:0:1".equals(ip)) {
             return "本地";
         }
 
+        // 3. 查询本地 IP 库
+        IpGeoDatabase current = database;
+        if (current == null) {
+            return "未知";
+        }
         try {
-            // 3. 调用免费 IP 查询 API
-            // API 文档：https://ip-api.com/docs/api:json
-            String url = String.format("http://ip-api.com/json/%s?lang=zh-CN&fields=status,message,country,regionName,city", ip);
-            
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(url))
-                    .timeout(Duration.ofSeconds(3))
-                    .GET()
-                    .build();
-
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-            if (response.statusCode() == 200) {
-                JsonNode jsonNode = objectMapper.readTree(response.body());
-                
-                // 检查 API 返回状态
-                String status = jsonNode.get("status").asText();
-                if ("success".equals(status)) {
-                    String country = jsonNode.has("country") ? jsonNode.get("country").asText() : "";
-                    String region = jsonNode.has("regionName") ? jsonNode.get("regionName").asText() : "";
-                    String city = jsonNode.has("city") ? jsonNode.get("city").asText() : "";
-
-                    // 组装地理位置字符串
-                    StringBuilder location = new StringBuilder();
-                    if (!country.isEmpty()) {
-                        location.append(country);
-                    }
-                    if (!region.isEmpty()) {
-                        if (location.length() > 0) location.append("-");
-                        location.append(region);
-                    }
-                    if (!city.isEmpty() && !city.equals(region)) {
-                        if (location.length() > 0) location.append("-");
-                        location.append(city);
-                    }
-
-                    String result = location.toString();
-                    log.debug("IP {} 解析为地理位置: {}", ip, result);
-                    return result.isEmpty() ? "未知" : result;
-                } else {
-                    String message = jsonNode.has("message") ? jsonNode.get("message").asText() : "unknown";
-                    log.warn("IP 地理位置查询失败: {}, IP: {}", message, ip);
-                }
-            }
+            String location = current.lookup(ip);
+            log.debug("IP {} 解析为地理位置: {}", ip, location);
+            return location != null ? location : "未知";
         } catch (Exception e) {
             log.error("查询 IP 地理位置异常: {}, IP: {}", e.getMessage(), ip);
+            return "未知";
         }
-
-        return "未知";
     }
 
     /**
@@ -103,10 +134,30 @@ public class IpLocationUtils {
      * @param callback 回调函数
      */
     public static void getLocationAsync(String ip, LocationCallback callback) {
-        new Thread(() -> {
-            String location = getLocation(ip);
-            callback.onLocationResolved(location);
-        }).start();
+        Runnable task = () -> callback.onLocationResolved(getLocationLimited(ip));
+        BoundedExecutor executor = asyncExecutor;
+        if (executor != null) {
+            executor.execute(task);
+        } else {
+            // 非 Spring 环境（未初始化执行器）：离线库查询只需微秒级，直接在当前线程执行
+            task.run();
+        }
+    }
+
+    /**
+     * 在 geo 并发许可内查询地理位置；许可耗尽时返回“未知”，不阻塞调用方
+     */
+    public static String getLocationLimited(String ip) {
+        DownstreamLimiter current = downstreamLimiter;
+        if (current == null) {
+            return getLocation(ip);
+        }
+        try {
+            return current.call(DownstreamLimiter.Downstream.GEO, () -> getLocation(ip));
+        } catch (DownstreamBusyException e) {
+            log.debug("IP 地理位置查询繁忙，跳过: {}", ip);
+            return "未知";
+        }
     }
 
     /**
@@ -0,0 +1,75 @@
+package com.neozeng.trackerserve.util;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 短链接在 Redis 中的存储布局
+ * <ul>
+ *     <li>string（默认）：每个短码两个独立 key，shortLink:meta:&lt;code&gt;（JSON）与 shortLink:clicks:&lt;code&gt;</li>
+ *     <li>hash：按短码解码后的 ID 分桶，每 bucket-size 个短码共用一个 Hash，
+ *     bucket 足够小时 Redis 以 listpack 编码存储，省去每个 key 约 50~90 字节的 dictEntry / robj / 过期表开销</li>
+ * </ul>
+ * 两种布局下 L1 缓存与失效广播始终使用 shortLink:meta:&lt;code&gt; 作为 key，切换布局不影响其他节点清理 L1。
+ */
+@Slf4j
+@Component
+public class LinkCacheLayout {
+
+    /**
+     * 存储布局：string / hash
+     */
+    @Value("${tracker.cache.layout:string}")
+    private String layout;
+
+    /**
+     * hash 布局下每个桶容纳的短码数，应不大于 Redis 的 hash-max-listpack-entries
+     */
+    @Value("${tracker.cache.hash.bucket-size:100}")
+    private int bucketSize;
+
+    private boolean hashLayout;
+
+    @PostConstruct
+    public void init() {
+        hashLayout = "hash".equalsIgnoreCase(layout);
+        if (bucketSize <= 0) {
+            throw new IllegalStateException("tracker.cache.hash.bucket-size 必须大于 0");
+        }
+        log.info("短链接 Redis 存储布局: {}{}", hashLayout ? "hash" : "string",
+                hashLayout ? ", bucketSize=" + bucketSize : "");
+    }
+
+    public boolean isHashLayout() {
+        return hashLayout;
+    }
+
+    /**
+     * 元数据的 L1 / 失效广播 key，也是 string 布局下的 Redis key
+     */
+    public String metaKey(String shortCode) {
+        return RedisConstants.SHORT_LINK_CACHE_KEY + shortCode;
+    }
+
+    public String metaBucketKey(String shortCode) {
+        return RedisConstants.SHORT_LINK_META_BUCKET_KEY + bucketOf(shortCode);
+    }
+
+    /**
+     * 当前布局下保存点击增量的 key：string 布局为独立计数器，hash 布局为所在的桶（field 为短码）
+     */
+    public String clicksKey(String shortCode) {
+        return hashLayout
+                ? RedisConstants.SHORT_LINK_CLICKS_BUCKET_KEY + bucketOf(shortCode)
+                : RedisConstants.SHORT_LINK_CLICKS_KEY + shortCode;
+    }
+
+    /**
+     * 短码由号段 ID 经 Base62 编码而来，解码后按 ID 连续分桶，同一批创建的短码落在相邻的少数几个桶里
+     */
+    public long bucketOf(String shortCode) {
+        return Math.floorDiv(Base62Utils.decode(shortCode), bucketSize);
+    }
+}
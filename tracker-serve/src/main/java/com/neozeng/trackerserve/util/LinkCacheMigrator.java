@@ -0,0 +1,121 @@
+package com.neozeng.trackerserve.util;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * string -> hash 存储布局迁移
+ * <p>
+ * 元数据缓存无需迁移：桶内未命中时 {@link CacheClient#queryHashWithMultiLevel} 会读取旧的 JSON key 并转存入桶，
+ * 未被访问的旧 key 按原 TTL 自然过期。
+ * 点击计数器是尚未同步到数据库的真实数据，由本任务定时 SCAN 旧计数器，逐个用 lua/migrate_clicks.lua 原子并入桶；
+ * 滚动发布期间仍按旧布局写入的节点产生的计数器，也会在下一轮被收走。
+ * 连续 empty-passes 轮都没有扫到旧计数器后写入完成标记并停止扫描，其他节点读到标记后同样停止，
+ * 迁移完成后每轮只剩一次内存判断。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LinkCacheMigrator {
+
+    private static final int SCAN_BATCH_SIZE = 500;
+
+    private static final DefaultRedisScript<Long> MIGRATE_CLICKS_SCRIPT;
+
+    static {
+        MIGRATE_CLICKS_SCRIPT = new DefaultRedisScript<>();
+        MIGRATE_CLICKS_SCRIPT.setLocation(new ClassPathResource("lua/migrate_clicks.lua"));
+        MIGRATE_CLICKS_SCRIPT.setResultType(Long.class);
+    }
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final LinkCacheLayout linkCacheLayout;
+
+    /**
+     * 连续多少轮没有扫到旧计数器才认为迁移完成：给滚动发布中仍按旧布局写入的节点留出时间
+     */
+    @Value("${tracker.cache.hash.migrate-empty-passes:3}")
+    private int emptyPassesToFinish;
+
+    private int emptyPasses;
+    private volatile boolean finished;
+
+    @Scheduled(initialDelayString = "${tracker.cache.hash.migrate-initial-delay-ms:10000}",
+            fixedDelayString = "${tracker.cache.hash.migrate-interval-ms:300000}")
+    public void migrateLegacyClicks() {
+        if (!linkCacheLayout.isHashLayout() || finished) {
+            return;
+        }
+        if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(RedisConstants.CLICKS_MIGRATED_KEY))) {
+            finished = true;
+            log.info("string 布局点击计数器已由其他节点迁移完成，停止扫描");
+            return;
+        }
+        ScanOptions options = ScanOptions.scanOptions()
+                .match(RedisConstants.SHORT_LINK_CLICKS_KEY + "*")
+                .count(SCAN_BATCH_SIZE)
+                .build();
+        int migrated = 0;
+        boolean scanned = false;
+        List<String> batch = new ArrayList<>(SCAN_BATCH_SIZE);
+        try (Cursor<String> cursor = stringRedisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() >= SCAN_BATCH_SIZE) {
+                    migrated += migrateBatch(batch);
+                    batch.clear();
+                }
+            }
+            migrated += migrateBatch(batch);
+            scanned = true;
+        } catch (Exception e) {
+            log.error("迁移旧布局点击计数器失败，等待下次重试", e);
+        }
+        if (migrated > 0) {
+            log.info("已将 {} 个 string 布局的点击计数器并入 hash 桶", migrated);
+            emptyPasses = 0;
+        } else if (scanned && ++emptyPasses >= emptyPassesToFinish) {
+            stringRedisTemplate.opsForValue().set(RedisConstants.CLICKS_MIGRATED_KEY, "1");
+            finished = true;
+            log.info("连续 {} 轮未发现 string 布局点击计数器，迁移完成，停止扫描", emptyPasses);
+        }
+    }
+
+    /**
+     * 一次管道迁移一批计数器（EVAL 直接携带脚本，迁移频率很低，不必处理 NOSCRIPT）
+     */
+    private int migrateBatch(List<String> keys) {
+        if (keys.isEmpty()) {
+            return 0;
+        }
+        byte[] script = bytes(MIGRATE_CLICKS_SCRIPT.getScriptAsString());
+        int prefixLength = RedisConstants.SHORT_LINK_CLICKS_KEY.length();
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String key : keys) {
+                String shortCode = key.substring(prefixLength);
+                connection.scriptingCommands().eval(script, ReturnType.INTEGER, 2,
+                        bytes(key), bytes(linkCacheLayout.clicksKey(shortCode)), bytes(shortCode));
+            }
+            return null;
+        });
+        return keys.size();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,69 @@
+package com.neozeng.trackerserve.util;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.util.Set;
+
+/**
+ * 短链接重定向策略：状态码 + 浏览器 / CDN 缓存时间
+ * <ul>
+ *     <li>302 / 307（临时）且 max-age 为 0：默认，每次访问都回到服务端，点击统计完整</li>
+ *     <li>301 / 308（永久）或 max-age &gt; 0：浏览器和前置 CDN 可以直接复用跳转，
+ *     命中缓存的访问不会到达服务端，点击量只是下限（见 ShortLink#isCacheableRedirect）</li>
+ * </ul>
+ */
+public class RedirectPolicyUtils {
+
+    public static final int DEFAULT_STATUS = HttpServletResponse.SC_FOUND;
+
+    /**
+     * max-age 上限：一年
+     */
+    public static final int MAX_CACHE_MAX_AGE = 365 * 24 * 3600;
+
+    private static final Set<Integer> SUPPORTED_STATUSES = Set.of(301, 302, 307, 308);
+
+    /**
+     * 校验重定向策略，参数为 null 表示使用默认值
+     * @return 错误信息，合法时返回 null
+     */
+    public static String validate(Integer status, Integer cacheMaxAge) {
+        if (status != null && !SUPPORTED_STATUSES.contains(status)) {
+            return "重定向状态码只支持 301、302、307、308";
+        }
+        if (cacheMaxAge != null && (cacheMaxAge < 0 || cacheMaxAge > MAX_CACHE_MAX_AGE)) {
+            return "缓存时间需在 0 到 " + MAX_CACHE_MAX_AGE + " 秒之间";
+        }
+        return null;
+    }
+
+    public static int statusOrDefault(Integer status) {
+        return status == null ? DEFAULT_STATUS : status;
+    }
+
+    public static int maxAgeOrDefault(Integer cacheMaxAge) {
+        return cacheMaxAge == null ? 0 : cacheMaxAge;
+    }
+
+    /**
+     * 浏览器是否可能不经过服务端直接复用该跳转
+     */
+    public static boolean isCacheable(int status, int cacheMaxAge) {
+        return cacheMaxAge > 0 || status == HttpServletResponse.SC_MOVED_PERMANENTLY || status == 308;
+    }
+
+    /**
+     * 写出重定向响应：状态码、Location 与 Cache-Control
+     * max-age 为 0 时显式声明 no-cache，避免浏览器对 301 / 308 做启发式的永久缓存
+     */
+    public static void writeRedirect(HttpServletResponse response, int status, int cacheMaxAge, String location) {
+        response.setStatus(status);
+        response.setHeader("Location", location);
+        response.setHeader("Cache-Control", cacheControl(cacheMaxAge));
+        response.setContentLength(0);
+    }
+
+    public static String cacheControl(int cacheMaxAge) {
+        return cacheMaxAge > 0 ? "public, max-age=" + cacheMaxAge : "private, no-cache";
+    }
+}
@@ -13,10 +13,64 @@ public class RedisConstants {
 
     public static final String LOCK_SHOP_KEY = "lock:shop:";
     public static final Long LOCK_SHOP_TTL = 10L;
+    /**
+     * 提前刷新（refresh-ahead）的跨节点互斥锁，同一 key 同时只有一个节点回源重建
+     */
+    public static final String CACHE_REFRESH_LOCK_KEY = "lock:refresh:";
 
     public static final String SECKILL_STOCK_KEY = "seckill:stock:";
     public static final String BLOG_LIKED_KEY = "blog:liked:";
     public static final String FEED_KEY = "feed:";
     public static final String SHOP_GEO_KEY = "shop:geo:";
     public static final String USER_SIGN_KEY = "sign:";
+
+    /**
+     * 短链接元数据缓存（JSON 格式的 ShortLinkMeta）
+     */
+    public static final String SHORT_LINK_CACHE_KEY = "shortLink:meta:";
+    public static final Long SHORT_LINK_CACHE_TTL = 24L;
+    public static final String SHORT_LINK_CLICKS_KEY = "shortLink:clicks:";
+    /**
+     * string -> hash 点击计数器迁移完成标记，存在时各节点不再 SCAN 旧计数器；切回 string 布局后需手动删除
+     */
+    public static final String CLICKS_MIGRATED_KEY = "shortLink:clicksMigrated";
+    /**
+     * 紧凑布局（tracker.cache.layout=hash）：按短码 ID 分桶的 Hash，field 为短码
+     * meta 桶的 value 为 ShortLinkMeta 的紧凑编码，clicks 桶的 value 为未同步的点击增量
+     */
+    public static final String SHORT_LINK_META_BUCKET_KEY = "shortLink:h:meta:";
+    public static final String SHORT_LINK_CLICKS_BUCKET_KEY = "shortLink:h:clicks:";
+    public static final String SHORT_LINK_RANKING_KEY = "shortLink:ranking:";
+    public static final String SHORT_LINK_GLOBAL_RANKING_KEY = "shortLink:ranking:global";
+    /**
+     * 已越过同步阈值、等待写入数据库的点击量（Hash：shortCode -> clicks）
+     */
+    public static final String SHORT_LINK_PENDING_CLICKS_KEY = "shortLink:pendingClicks";
+    /**
+     * 各节点认领后、写库完成前的在途点击量（Hash，后缀为节点 ID），节点存活租约（后缀为节点 ID），
+     * 以及持有在途 Hash 的节点集合（租约过期的节点由存活节点回收）
+     */
+    public static final String SHORT_LINK_INFLIGHT_CLICKS_KEY = "shortLink:pendingClicks:inflight:";
+    public static final String SHORT_LINK_CLICK_NODE_LEASE_KEY = "shortLink:pendingClicks:lease:";
+    public static final String SHORT_LINK_CLICK_NODES_KEY = "shortLink:pendingClicks:nodes";
+    /**
+     * 点击量刷出批次的已执行标记（bitmap：短码在批次中的序号 -> 是否已记账），后缀为 节点 ID:批次序号
+     */
+    public static final String CLICK_BATCH_KEY = "shortLink:clickBatch:";
+    /**
+     * 缓存失效广播频道：任一节点修改/删除短链接后，通知所有节点清理本地 L1 缓存
+     */
+    public static final String CACHE_INVALIDATE_CHANNEL = "shortLink:channel:invalidate";
+
+    /**
+     * 短码布隆过滤器（Redis bitmap），以及新增短码的广播频道
+     */
+    public static final String SHORT_LINK_BLOOM_KEY = "shortLink:bloom";
+    public static final String BLOOM_ADD_CHANNEL = "shortLink:channel:bloom";
+
+    /**
+     * 批量导入任务进度（Hash：status / processed / created / failed / error）
+     */
+    public static final String SHORT_LINK_IMPORT_KEY = "shortLink:import:";
+    public static final Long SHORT_LINK_IMPORT_TTL = 24L;
 }
@@ -0,0 +1,179 @@
+package com.neozeng.trackerserve.util;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 号段模式 ID 生成器（Leaf-segment）
+ * 每次从 t_id_segment 原子领取一段 [maxId - step + 1, maxId] 的 ID 在内存中发放，
+ * 当前号段用掉一定比例后异步预取下一段（双缓冲），切换号段时通常无需等待数据库。
+ * 多节点各自领取不重叠的号段，创建短链接不再依赖自增主键，也就可以在 INSERT 前算出短码。
+ * <p>
+ * 号段行不存在时以 t_short_link 当前的 MAX(id) 初始化，保证与已有数据不冲突。
+ * 节点重启会浪费未用完的号段，ID 只保证唯一、趋势递增，不保证连续。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SegmentIdGenerator {
+
+    public static final String SHORT_LINK_BIZ_TAG = "short_link";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PlatformTransactionManager transactionManager;
+    private final ExecutorRegistry executorRegistry;
+
+    /**
+     * 每次领取的号段长度
+     */
+    @Value("${tracker.id-segment.step:1000}")
+    private int step;
+
+    /**
+     * 当前号段用掉该比例后开始预取下一段
+     */
+    @Value("${tracker.id-segment.preload-ratio:0.1}")
+    private double preloadRatio;
+
+    /**
+     * 独立事务领取号段，不受调用方事务回滚影响，也不长时间持有号段行锁
+     */
+    private TransactionTemplate requiresNew;
+
+    /**
+     * 初始为空号段（startId > maxId），首次调用时领取
+     */
+    private volatile Segment current = new Segment(1, 0);
+    private volatile Segment next;
+    private final AtomicBoolean preloading = new AtomicBoolean(false);
+    /**
+     * 切换号段可能同步访问数据库，用 ReentrantLock 而不是 synchronized，虚拟线程等待时不会钉住载体线程
+     */
+    private final ReentrantLock switchLock = new ReentrantLock();
+    private BoundedExecutor preloadExecutor;
+
+    @PostConstruct
+    public void init() {
+        requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        preloadExecutor = executorRegistry.create("id-segment-preload", 1, 1, BoundedExecutor.RejectPolicy.DROP);
+    }
+
+    /**
+     * 获取下一个短链接 ID
+     */
+    public long nextId() {
+        while (true) {
+            Segment segment = current;
+            long id = segment.cursor.getAndIncrement();
+            if (id <= segment.maxId) {
+                if (id - segment.startId >= (long) (step * preloadRatio)) {
+                    preloadIfNeeded();
+                }
+                return id;
+            }
+            switchSegment(segment);
+        }
+    }
+
+    /**
+     * 当前号段耗尽：优先切换到预取好的下一段，没有则同步领取
+     */
+    private void switchSegment(Segment exhausted) {
+        switchLock.lock();
+        try {
+            if (current != exhausted) {
+                // 其他线程已经完成切换
+                return;
+            }
+            Segment prepared = next;
+            if (prepared != null) {
+                next = null;
+                current = prepared;
+            } else {
+                current = allocate();
+            }
+        } finally {
+            switchLock.unlock();
+        }
+    }
+
+    private void preloadIfNeeded() {
+        if (next != null || !preloading.compareAndSet(false, true)) {
+            return;
+        }
+        boolean accepted = preloadExecutor.submit(() -> {
+            try {
+                next = allocate();
+            } catch (Exception e) {
+                // 预取失败不影响当前号段，耗尽时会同步重试
+                log.error("预取 ID 号段失败", e);
+            } finally {
+                preloading.set(false);
+            }
+        });
+        if (!accepted) {
+            preloading.set(false);
+        }
+    }
+
+    /**
+     * 在独立事务中领取一段 ID：UPDATE 累加后读回 max_id，行锁只在这一小段事务内持有
+     */
+    private Segment allocate() {
+        Segment segment = requiresNew.execute(status -> {
+            int updated = jdbcTemplate.update(
+                    "UPDATE t_id_segment SET max_id = max_id + step, update_time = NOW() WHERE biz_tag = ?",
+                    SHORT_LINK_BIZ_TAG);
+            if (updated == 0) {
+                initSegmentRow();
+                jdbcTemplate.update(
+                        "UPDATE t_id_segment SET max_id = max_id + step, update_time = NOW() WHERE biz_tag = ?",
+                        SHORT_LINK_BIZ_TAG);
+            }
+            Map<String, Object> row = jdbcTemplate.queryForMap(
+                    "SELECT max_id, step FROM t_id_segment WHERE biz_tag = ?", SHORT_LINK_BIZ_TAG);
+            long maxId = ((Number) row.get("max_id")).longValue();
+            int rowStep = ((Number) row.get("step")).intValue();
+            return new Segment(maxId - rowStep + 1, maxId);
+        });
+        log.info("领取 ID 号段: [{}, {}]", segment.startId, segment.maxId);
+        return segment;
+    }
+
+    /**
+     * 首次使用时以短链接表当前最大 ID 初始化号段行；多节点并发初始化时只有一个 INSERT 生效
+     */
+    private void initSegmentRow() {
+        jdbcTemplate.update("INSERT IGNORE INTO t_id_segment (biz_tag, max_id, step, update_time) " +
+                "SELECT ?, COALESCE(MAX(id), 0), ?, NOW() FROM t_short_link", SHORT_LINK_BIZ_TAG, step);
+        log.info("号段表初始化: bizTag={}, step={}", SHORT_LINK_BIZ_TAG, step);
+    }
+
+    /**
+     * 一个号段：[startId, maxId]，cursor 为下一个待发放的 ID
+     */
+    private static class Segment {
+        private final long startId;
+        private final long maxId;
+        private final AtomicLong cursor;
+
+        Segment(long startId, long maxId) {
+            this.startId = startId;
+            this.maxId = maxId;
+            this.cursor = new AtomicLong(startId);
+        }
+    }
+}
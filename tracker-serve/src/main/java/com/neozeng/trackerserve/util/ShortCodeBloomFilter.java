@@ -0,0 +1,329 @@
+package com.neozeng.trackerserve.util;
+
+import cn.hutool.core.util.IdUtil;
+import com.neozeng.trackerserve.mapper.ShortLinkMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 短码布隆过滤器
+ * 记录所有已发放的短码，布隆过滤器判定“一定不存在”的短码直接 404，不再访问 Redis 和 MySQL，
+ * 从而替代原来“为每个不存在的短码缓存空字符串”的防穿透方案。
+ * <p>
+ * 本地保存一份位数组用于判定；Redis 中保存一份 bitmap（{@link RedisConstants#SHORT_LINK_BLOOM_KEY}）作为多节点的共享副本：
+ * 新短码写入本地与 Redis，并通过 {@link RedisConstants#BLOOM_ADD_CHANNEL} 广播给其他节点；
+ * 另有定时任务把 Redis 副本合并回本地，兜底广播消息丢失的情况。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ShortCodeBloomFilter {
+
+    private static final int SEED_BATCH_SIZE = 10000;
+
+    private final StringRedisTemplate stringRedisTemplate;
+    private final ShortLinkMapper shortLinkMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${tracker.bloom.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 预计短码总数
+     */
+    @Value("${tracker.bloom.expected-insertions:10000000}")
+    private long expectedInsertions;
+
+    /**
+     * 期望误判率
+     */
+    @Value("${tracker.bloom.fpp:0.01}")
+    private double fpp;
+
+    /**
+     * 位数组长度（按 64 位对齐）与哈希函数个数
+     */
+    private long numBits;
+    private int numHashFunctions;
+    private AtomicLongArray bits;
+    private final AtomicLong bitCount = new AtomicLong();
+
+    /**
+     * 启动初始化完成前放行所有短码，避免初始化期间误把合法短码判为 404
+     */
+    private volatile boolean ready = false;
+
+    private Counter rejectedCounter;
+
+    @PostConstruct
+    public void init() {
+        long m = (long) Math.ceil(-expectedInsertions * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        numBits = Math.max(64, (m + 63) / 64 * 64);
+        numHashFunctions = Math.max(1, (int) Math.round((double) numBits / expectedInsertions * Math.log(2)));
+        bits = new AtomicLongArray((int) (numBits / 64));
+
+        Gauge.builder("shortlink.bloom.fpp", this, ShortCodeBloomFilter::currentFpp)
+                .description("布隆过滤器当前估算误判率")
+                .register(meterRegistry);
+        Gauge.builder("shortlink.bloom.memory.bytes", this, f -> f.numBits / 8.0)
+                .description("布隆过滤器本地位数组占用内存")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("shortlink.bloom.bits.set", bitCount, AtomicLong::get)
+                .description("布隆过滤器已置位的 bit 数")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("shortlink.bloom.rejected")
+                .description("被布隆过滤器直接拦截的短码请求数")
+                .register(meterRegistry);
+
+        log.info("布隆过滤器参数: expectedInsertions={}, fpp={}, numBits={}, numHashFunctions={}, memory={}KB",
+                expectedInsertions, fpp, numBits, numHashFunctions, numBits / 8 / 1024);
+    }
+
+    /**
+     * 应用启动完成后，从 t_short_link 全量加载短码，并与 Redis 副本合并
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void seed() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        long lastId = 0L;
+        long total = 0L;
+        while (true) {
+            List<Object[]> rows = shortLinkMapper.findShortCodesAfterId(lastId, PageRequest.of(0, SEED_BATCH_SIZE));
+            for (Object[] row : rows) {
+                lastId = (Long) row[0];
+                String shortCode = (String) row[1];
+                if (shortCode != null) {
+                    putLocal(shortCode);
+                    total++;
+                }
+            }
+            if (rows.size() < SEED_BATCH_SIZE) {
+                break;
+            }
+        }
+
+        try {
+            mergeIntoRedis();
+            syncFromRedis();
+        } catch (Exception e) {
+            log.error("布隆过滤器同步 Redis 失败，仅使用本地数据", e);
+        }
+        ready = true;
+        log.info("布隆过滤器初始化完成: 加载短码 {} 个, 耗时 {}ms, 当前估算误判率 {}",
+                total, System.currentTimeMillis() - start, currentFpp());
+    }
+
+    /**
+     * 判断短码是否可能存在；返回 false 表示一定不存在
+     */
+    public boolean mightContain(String shortCode) {
+        if (!enabled || !ready) {
+            return true;
+        }
+        long[] hashes = hash(shortCode);
+        for (int i = 0; i < numHashFunctions; i++) {
+            long index = bitIndex(hashes, i);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                rejectedCounter.increment();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 新增短码：写入本地、Redis 副本，并广播给其他节点
+     */
+    public void add(String shortCode) {
+        if (!enabled) {
+            return;
+        }
+        putLocal(shortCode);
+        long[] hashes = hash(shortCode);
+        byte[] key = RedisConstants.SHORT_LINK_BLOOM_KEY.getBytes(StandardCharsets.UTF_8);
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int i = 0; i < numHashFunctions; i++) {
+                connection.stringCommands().setBit(key, bitIndex(hashes, i), true);
+            }
+            return null;
+        });
+        stringRedisTemplate.convertAndSend(RedisConstants.BLOOM_ADD_CHANNEL, shortCode);
+    }
+
+    /**
+     * 批量新增短码：一次管道写入所有 SETBIT，并合并为一条广播（短码以逗号分隔）
+     */
+    public void addAll(Collection<String> shortCodes) {
+        if (!enabled || shortCodes.isEmpty()) {
+            return;
+        }
+        byte[] key = RedisConstants.SHORT_LINK_BLOOM_KEY.getBytes(StandardCharsets.UTF_8);
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (String shortCode : shortCodes) {
+                putLocal(shortCode);
+                long[] hashes = hash(shortCode);
+                for (int i = 0; i < numHashFunctions; i++) {
+                    connection.stringCommands().setBit(key, bitIndex(hashes, i), true);
+                }
+            }
+            return null;
+        });
+        stringRedisTemplate.convertAndSend(RedisConstants.BLOOM_ADD_CHANNEL, String.join(",", shortCodes));
+    }
+
+    /**
+     * 仅写入本地位数组（由广播监听器调用）
+     */
+    public void putLocal(String shortCode) {
+        long[] hashes = hash(shortCode);
+        for (int i = 0; i < numHashFunctions; i++) {
+            setBit(bitIndex(hashes, i));
+        }
+    }
+
+    /**
+     * 定时把 Redis 副本合并回本地，兜底 pub/sub 消息丢失（节点断线重连期间的新增短码）
+     */
+    @Scheduled(fixedDelayString = "${tracker.bloom.sync-interval-ms:300000}",
+            initialDelayString = "${tracker.bloom.sync-interval-ms:300000}")
+    public void syncFromRedis() {
+        if (!enabled) {
+            return;
+        }
+        byte[] remote = stringRedisTemplate.execute((RedisCallback<byte[]>) connection ->
+                connection.stringCommands().get(RedisConstants.SHORT_LINK_BLOOM_KEY.getBytes(StandardCharsets.UTF_8)));
+        if (remote == null) {
+            return;
+        }
+        // 按 64 位整字合并：每 8 个字节转换成一个本地字，全 0 的字直接跳过
+        int words = (int) Math.min((remote.length + 7L) / 8, numBits / 64);
+        for (int word = 0; word < words; word++) {
+            long value = toLocalWord(remote, word);
+            if (value == 0 || (bits.get(word) & value) == value) {
+                continue;
+            }
+            long old = bits.getAndAccumulate(word, value, (a, b) -> a | b);
+            bitCount.addAndGet(Long.bitCount(value & ~old));
+        }
+    }
+
+    /**
+     * Redis bitmap 的 offset n 对应第 n/8 个字节的第 (7 - n%8) 位（高位在前），本地第 n 位是第 n/64 个字的第 n%64 位（低位在前）：
+     * 把 8 个字节按大端读成 long 后整体位反转，即得到对应的本地字；末尾不足 8 字节的部分补 0
+     */
+    private static long toLocalWord(byte[] remote, int word) {
+        int offset = word * 8;
+        long bigEndian = 0;
+        for (int i = 0; i < 8; i++) {
+            bigEndian <<= 8;
+            if (offset + i < remote.length) {
+                bigEndian |= remote[offset + i] & 0xFF;
+            }
+        }
+        return Long.reverse(bigEndian);
+    }
+
+    /**
+     * 当前估算误判率：(已置位比例)^k
+     */
+    public double currentFpp() {
+        return Math.pow((double) bitCount.get() / numBits, numHashFunctions);
+    }
+
+    /**
+     * 把本地位数组通过 BITOP OR 合并进 Redis，不会覆盖其他节点并发写入的 bit
+     */
+    private void mergeIntoRedis() {
+        // toLocalWord 的逆过程：本地字位反转后按大端写出 8 个字节，全 0 的字保持默认值
+        byte[] local = new byte[(int) (numBits / 8)];
+        ByteBuffer buffer = ByteBuffer.wrap(local);
+        for (int word = 0; word < bits.length(); word++) {
+            long value = bits.get(word);
+            if (value != 0) {
+                buffer.putLong(word * 8, Long.reverse(value));
+            }
+        }
+        byte[] key = RedisConstants.SHORT_LINK_BLOOM_KEY.getBytes(StandardCharsets.UTF_8);
+        byte[] tmpKey = (RedisConstants.SHORT_LINK_BLOOM_KEY + ":tmp:" + IdUtil.fastSimpleUUID()).getBytes(StandardCharsets.UTF_8);
+        stringRedisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.stringCommands().set(tmpKey, local);
+            connection.stringCommands().bitOp(RedisStringCommands.BitOperation.OR, key, key, tmpKey);
+            connection.keyCommands().del(tmpKey);
+            return null;
+        });
+    }
+
+    /**
+     * CAS 置位，只有 0 -> 1 时才计数，用于估算误判率
+     */
+    private void setBit(long index) {
+        int word = (int) (index >>> 6);
+        long mask = 1L << index;
+        while (true) {
+            long old = bits.get(word);
+            if ((old & mask) != 0) {
+                return;
+            }
+            if (bits.compareAndSet(word, old, old | mask)) {
+                bitCount.incrementAndGet();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 双重哈希：第 i 个位置 = h1 + i * h2（Kirsch-Mitzenmacher）
+     */
+    private long bitIndex(long[] hashes, int i) {
+        return Math.floorMod(hashes[0] + (long) i * hashes[1], numBits);
+    }
+
+    private static long[] hash(String shortCode) {
+        byte[] bytes = shortCode.getBytes(StandardCharsets.UTF_8);
+        // FNV-1a 64 位
+        long h = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        long h1 = fmix64(h);
+        long h2 = fmix64(h1 + 0x9E3779B97F4A7C15L) | 1L;
+        return new long[]{h1, h2};
+    }
+
+    /**
+     * MurmurHash3 的 64 位终混函数，使低位分布均匀
+     */
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
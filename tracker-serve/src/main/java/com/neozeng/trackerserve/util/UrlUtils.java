@@ -0,0 +1,84 @@
+package com.neozeng.trackerserve.util;
+
+import cn.hutool.crypto.digest.DigestUtil;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Locale;
+
+/**
+ * URL 工具类
+ */
+public class UrlUtils {
+
+    /**
+     * 规范化 URL，确保有协议前缀
+     * 如果 URL 没有 http:// 或 https://，默认添加 https://
+     */
+    public static String normalizeUrl(String url) {
+        if (url == null || url.trim().isEmpty()) {
+            return url;
+        }
+        url = url.trim();
+        // 如果已经有协议前缀，直接返回
+        if (url.startsWith("http://") || url.startsWith("https://")) {
+            return url;
+        }
+        // 如果没有协议前缀，默认添加 https://
+        // 特殊处理 chrome://, file:// 等协议
+        if (url.contains("://")) {
+            return url; // 已有其他协议，保持不变
+        }
+        return "https://" + url;
+    }
+
+    /**
+     * 去重用的规范形式：在 normalizeUrl 基础上，协议与主机名转小写、去掉默认端口、空路径补 "/"
+     * 路径、查询参数、片段大小写敏感，保持原样；无法解析的 URL 退化为 normalizeUrl 的结果
+     */
+    public static String canonicalizeUrl(String url) {
+        String normalized = normalizeUrl(url);
+        if (normalized == null || normalized.isEmpty()) {
+            return normalized;
+        }
+        try {
+            URI uri = new URI(normalized);
+            if (uri.getScheme() == null || uri.getHost() == null) {
+                return normalized;
+            }
+            String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+            int port = uri.getPort();
+            if (("http".equals(scheme) && port == 80) || ("https".equals(scheme) && port == 443)) {
+                port = -1;
+            }
+            StringBuilder sb = new StringBuilder(normalized.length());
+            sb.append(scheme).append("://");
+            if (uri.getRawUserInfo() != null) {
+                sb.append(uri.getRawUserInfo()).append('@');
+            }
+            sb.append(uri.getHost().toLowerCase(Locale.ROOT));
+            if (port != -1) {
+                sb.append(':').append(port);
+            }
+            String path = uri.getRawPath();
+            sb.append(path == null || path.isEmpty() ? "/" : path);
+            if (uri.getRawQuery() != null) {
+                sb.append('?').append(uri.getRawQuery());
+            }
+            if (uri.getRawFragment() != null) {
+                sb.append('#').append(uri.getRawFragment());
+            }
+            return sb.toString();
+        } catch (URISyntaxException e) {
+            return normalized;
+        }
+    }
+
+    /**
+     * 规范化 URL 的 SHA-256（64 位十六进制），作为 t_short_link.url_hash 的定长索引键
+     */
+    public static String hashUrl(String url) {
+        String canonical = canonicalizeUrl(url);
+        return canonical == null ? null : DigestUtil.sha256Hex(canonical);
+    }
+}
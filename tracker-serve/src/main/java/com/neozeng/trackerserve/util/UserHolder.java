@@ -2,19 +2,34 @@ package com.neozeng.trackerserve.util;
 
 
 import com.neozeng.trackerserve.pojo.User;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
 
+/**
+ * 当前登录用户
+ * 用户对象保存在本次请求的属性中（而不是自建的 ThreadLocal），生命周期与请求绑定：
+ * 请求结束由容器随请求一起回收，即使拦截器的 afterCompletion 没有执行，池化线程处理下一个请求时也读不到上一个用户。
+ * 不在请求线程内（如 @Async 任务）时返回 null，需要用户信息的异步任务应由调用方显式传参。
+ */
 public class UserHolder {
-    private static final ThreadLocal<User> tl = new ThreadLocal<>();
+    private static final String USER_ATTRIBUTE = UserHolder.class.getName() + ".USER";
 
     public static void saveUser(User user){
-        tl.set(user);
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(USER_ATTRIBUTE, user, RequestAttributes.SCOPE_REQUEST);
+        }
     }
 
     public static User getUser(){
-        return tl.get();
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        return attributes != null ? (User) attributes.getAttribute(USER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) : null;
     }
 
     public static void removeUser(){
-        tl.remove();
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.removeAttribute(USER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        }
     }
 }
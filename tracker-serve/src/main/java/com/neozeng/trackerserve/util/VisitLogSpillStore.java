@@ -0,0 +1,241 @@
+package com.neozeng.trackerserve.util;
+
+import com.neozeng.trackerserve.pojo.VisitLog;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * 访问日志溢出文件
+ * 访问日志执行器队列已满且策略为 spill 时，未处理的访问事件按行追加到本地文件（不含地理位置，重放时再解析），
+ * 流量回落后由调用方调用 {@link #replay} 重新提交。文件超过 max-bytes 后不再接受溢出，事件被丢弃。
+ * <p>
+ * {@link #append} 在请求线程上调用，只把行放进有界内存缓冲，不做文件 I/O、不持锁；
+ * 由定时任务 {@link #flush} 在后台批量写入文件。缓冲已满时同样拒绝（事件被丢弃）。
+ * <p>
+ * 行格式（制表符分隔）：createTime  userId  shortCode  ip  userAgent
+ */
+@Slf4j
+@Component
+public class VisitLogSpillStore {
+
+    private static final String SPILL_FILE = "visit-log.spill";
+    private static final String REPLAY_FILE = "visit-log.replaying";
+
+    @Value("${tracker.executors.visit-log.spill-dir:${java.io.tmpdir}/tracker-spill}")
+    private String spillDir;
+
+    /**
+     * 溢出文件大小上限（字节）
+     */
+    @Value("${tracker.executors.visit-log.spill-max-bytes:536870912}")
+    private long maxBytes;
+
+    /**
+     * 等待写入文件的溢出行缓冲容量
+     */
+    @Value("${tracker.executors.visit-log.spill-buffer-capacity:10000}")
+    private int bufferCapacity;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private BlockingQueue<String> buffer;
+    /**
+     * 当前溢出文件与缓冲中的总字节数（UTF-8），在 append 时预占，用于在请求线程上无锁判断是否超出上限
+     */
+    private final AtomicLong reservedBytes = new AtomicLong();
+    private Path spillFile;
+    private Path replayFile;
+    private BufferedWriter writer;
+
+    @PostConstruct
+    public void init() throws IOException {
+        Path dir = Paths.get(spillDir);
+        Files.createDirectories(dir);
+        spillFile = dir.resolve(SPILL_FILE);
+        replayFile = dir.resolve(REPLAY_FILE);
+        buffer = new ArrayBlockingQueue<>(bufferCapacity);
+        if (Files.exists(spillFile)) {
+            reservedBytes.set(Files.size(spillFile));
+        }
+    }
+
+    /**
+     * 追加一条访问事件：只放入内存缓冲，由 {@link #flush} 写入文件
+     * @return 文件或缓冲已满时返回 false
+     */
+    public boolean append(VisitLog visitLog) {
+        String line = visitLog.getCreateTime() + "\t" + (visitLog.getUserId() == null ? "" : visitLog.getUserId())
+                + "\t" + visitLog.getShortCode() + "\t" + clean(visitLog.getIp()) + "\t" + clean(visitLog.getUserAgent()) + "\n";
+        // 按 UTF-8 字节计数：User-Agent 等字段可能含非 ASCII 字符
+        int lineBytes = line.getBytes(StandardCharsets.UTF_8).length;
+        if (reservedBytes.addAndGet(lineBytes) > maxBytes) {
+            reservedBytes.addAndGet(-lineBytes);
+            return false;
+        }
+        if (!buffer.offer(line)) {
+            reservedBytes.addAndGet(-lineBytes);
+            return false;
+        }
+        return true;
+    }
+
+    public boolean hasPending() {
+        return !buffer.isEmpty() || Files.exists(spillFile) || Files.exists(replayFile);
+    }
+
+    /**
+     * 重放溢出的访问事件：先把缓冲写入文件并把当前文件改名，新的溢出写入新文件，再逐行交给 sink
+     * sink 返回 false（执行器又满了）时停止，剩余行原样写回溢出文件等待下次重放
+     * @return 成功重放的条数
+     */
+    public int replay(Predicate<VisitLog> sink) {
+        lock.lock();
+        try {
+            drainBuffer();
+            closeWriter();
+            if (!Files.exists(replayFile)) {
+                if (!Files.exists(spillFile)) {
+                    return 0;
+                }
+                Files.move(spillFile, replayFile, StandardCopyOption.ATOMIC_MOVE);
+                reservedBytes.addAndGet(-Files.size(replayFile));
+            }
+        } catch (IOException e) {
+            log.error("准备重放访问日志溢出文件失败", e);
+            return 0;
+        } finally {
+            lock.unlock();
+        }
+
+        int replayed = 0;
+        try (BufferedReader reader = Files.newBufferedReader(replayFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                VisitLog visitLog = parse(line);
+                if (visitLog == null) {
+                    continue;
+                }
+                if (!sink.test(visitLog)) {
+                    // 执行器又满了：把当前行和剩余行放回溢出文件
+                    putBack(line, reader);
+                    break;
+                }
+                replayed++;
+            }
+        } catch (IOException e) {
+            log.error("读取访问日志溢出文件失败: {}", replayFile, e);
+            return replayed;
+        }
+        try {
+            Files.deleteIfExists(replayFile);
+        } catch (IOException e) {
+            log.error("删除已重放的溢出文件失败: {}", replayFile, e);
+        }
+        return replayed;
+    }
+
+    /**
+     * 把内存缓冲写入文件并刷盘：后台定时执行，调用方的重放任务每个周期也会先调用一次；
+     * 进程崩溃最多丢失一个周期内的溢出，关闭时确保缓冲写入文件
+     */
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${tracker.executors.visit-log.spill-flush-interval-ms:1000}")
+    public void flush() {
+        lock.lock();
+        try {
+            drainBuffer();
+            if (writer != null) {
+                writer.flush();
+            }
+        } catch (IOException e) {
+            log.error("刷写访问日志溢出文件失败", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 把缓冲中的行追加到溢出文件，调用方持有锁
+     */
+    private void drainBuffer() throws IOException {
+        String line;
+        while ((line = buffer.poll()) != null) {
+            openWriter().write(line);
+        }
+    }
+
+    /**
+     * 重放中断时把当前行与剩余行原样写回溢出文件；这些行在改名时已从预占字节中扣除，这里重新计入
+     */
+    private void putBack(String line, BufferedReader reader) throws IOException {
+        lock.lock();
+        try {
+            BufferedWriter out = openWriter();
+            do {
+                out.write(line);
+                out.write('\n');
+                reservedBytes.addAndGet(line.getBytes(StandardCharsets.UTF_8).length + 1);
+            } while ((line = reader.readLine()) != null);
+            out.flush();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private BufferedWriter openWriter() throws IOException {
+        if (writer == null) {
+            writer = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        }
+        return writer;
+    }
+
+    private void closeWriter() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+
+    private static VisitLog parse(String line) {
+        String[] parts = line.split("\t", -1);
+        if (parts.length != 5) {
+            return null;
+        }
+        try {
+            VisitLog visitLog = new VisitLog();
+            visitLog.setCreateTime(LocalDateTime.parse(parts[0]));
+            visitLog.setUserId(parts[1].isEmpty() ? null : Long.parseLong(parts[1]));
+            visitLog.setShortCode(parts[2]);
+            visitLog.setIp(parts[3]);
+            visitLog.setUserAgent(parts[4]);
+            return visitLog;
+        } catch (RuntimeException e) {
+            log.warn("跳过无法解析的溢出记录: {}", line);
+            return null;
+        }
+    }
+
+    private static String clean(String value) {
+        return value == null ? "" : value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+}
@@ -0,0 +1,322 @@
+package com.neozeng.trackerserve.util;
+
+import com.neozeng.trackerserve.pojo.VisitLog;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 访问日志异步批量写入器（write-behind）
+ * 访问事件先进入有界内存队列，由专门的写线程攒批后以多行 INSERT 一次写入 t_visit_log，
+ * 避免每次点击一个事务、一次往返（VisitLog 使用 IDENTITY 主键，Hibernate 无法批量插入）。
+ * <p>
+ * 原始日志写入成功后，再在独立事务中把该批点击按 (短码, 小时)、(用户, 小时) 汇总后 upsert 进小时预聚合表
+ * （t_link_hourly_stat / t_user_hourly_stat），统计接口直接读预聚合表。多节点同时 upsert 相同行时，
+ * 按唯一键排序加锁以避免死锁；仍然发生死锁（或锁等待超时）时整个汇总事务重试，
+ * 重试用尽只丢失这一批的预聚合增量，原始访问日志不受影响。
+ * <p>
+ * 队列满时按 {@code tracker.visit-log.overflow-policy} 处理：
+ * drop - 直接丢弃；block - 最多阻塞 block-timeout-ms 等待空位，仍然满则丢弃。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class VisitLogWriter {
+
+    private static final String INSERT_PREFIX =
+            "INSERT INTO t_visit_log (user_id, short_code, ip, location, user_agent, create_time) VALUES ";
+    private static final String ROW_PLACEHOLDER = "(?, ?, ?, ?, ?, ?)";
+
+    private static final String LINK_ROLLUP_PREFIX =
+            "INSERT INTO t_link_hourly_stat (short_code, user_id, stat_hour, clicks) VALUES ";
+    private static final String LINK_ROLLUP_SUFFIX = " ON DUPLICATE KEY UPDATE clicks = clicks + VALUES(clicks)";
+    private static final String USER_ROLLUP_PREFIX =
+            "INSERT INTO t_user_hourly_stat (user_id, stat_hour, clicks) VALUES ";
+    private static final String USER_ROLLUP_SUFFIX = " ON DUPLICATE KEY UPDATE clicks = clicks + VALUES(clicks)";
+
+    /**
+     * 预聚合行的加锁顺序，与唯一键列顺序一致
+     */
+    private static final Comparator<RollupKey> LINK_KEY_ORDER = Comparator
+            .comparing(RollupKey::shortCode, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(RollupKey::hour);
+    private static final Comparator<RollupKey> USER_KEY_ORDER = Comparator
+            .comparing(RollupKey::userId, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(RollupKey::hour);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${tracker.visit-log.queue-capacity:100000}")
+    private int queueCapacity;
+
+    @Value("${tracker.visit-log.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * 攒批等待时间：收到第一条事件后最多再等这么久凑满一批
+     */
+    @Value("${tracker.visit-log.linger-ms:200}")
+    private long lingerMs;
+
+    @Value("${tracker.visit-log.overflow-policy:drop}")
+    private String overflowPolicy;
+
+    @Value("${tracker.visit-log.block-timeout-ms:50}")
+    private long blockTimeoutMs;
+
+    /**
+     * 预聚合 upsert 遇到死锁 / 锁等待超时时的最大重试次数
+     */
+    @Value("${tracker.visit-log.rollup-max-retries:3}")
+    private int rollupMaxRetries;
+
+    private BlockingQueue<VisitLog> queue;
+    private Thread writerThread;
+    private volatile boolean running;
+
+    private Counter droppedCounter;
+    private Counter writtenCounter;
+    private Counter failedCounter;
+    private Counter rollupFailedCounter;
+    private DistributionSummary batchSizeSummary;
+    private Timer flushTimer;
+
+    @PostConstruct
+    public void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        Gauge.builder("visitlog.queue.depth", queue, BlockingQueue::size)
+                .description("访问日志待写入队列长度")
+                .register(meterRegistry);
+        droppedCounter = Counter.builder("visitlog.dropped")
+                .description("队列已满被丢弃的访问日志数")
+                .register(meterRegistry);
+        writtenCounter = Counter.builder("visitlog.written")
+                .description("成功写入数据库的访问日志数")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("visitlog.failed")
+                .description("批量写入失败的访问日志数")
+                .register(meterRegistry);
+        rollupFailedCounter = Counter.builder("visitlog.rollup.failed")
+                .description("重试后仍未能累加进小时预聚合表的访问日志数（原始日志已写入）")
+                .register(meterRegistry);
+        batchSizeSummary = DistributionSummary.builder("visitlog.batch.size")
+                .description("每批写入的访问日志条数")
+                .register(meterRegistry);
+        flushTimer = Timer.builder("visitlog.flush.latency")
+                .description("每批访问日志写入耗时")
+                .register(meterRegistry);
+
+        running = true;
+        writerThread = new Thread(this::runLoop, "visit-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        log.info("访问日志写入器已启动: queueCapacity={}, batchSize={}, lingerMs={}, overflowPolicy={}",
+                queueCapacity, batchSize, lingerMs, overflowPolicy);
+    }
+
+    /**
+     * 提交一条访问日志
+     * @return 是否进入队列；false 表示因队列已满被丢弃
+     */
+    public boolean submit(VisitLog visitLog) {
+        if (visitLog.getCreateTime() == null) {
+            // 不经过 JPA，@PrePersist 不会触发，这里补上访问时间
+            visitLog.setCreateTime(LocalDateTime.now());
+        }
+        boolean accepted;
+        if ("block".equalsIgnoreCase(overflowPolicy)) {
+            try {
+                accepted = queue.offer(visitLog, blockTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                accepted = false;
+            }
+        } else {
+            accepted = queue.offer(visitLog);
+        }
+        if (!accepted) {
+            droppedCounter.increment();
+            log.debug("访问日志队列已满，丢弃: shortCode={}", visitLog.getShortCode());
+        }
+        return accepted;
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writerThread.interrupt();
+        writerThread.join(TimeUnit.SECONDS.toMillis(10));
+    }
+
+    private void runLoop() {
+        List<VisitLog> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                VisitLog first = running ? queue.poll(1, TimeUnit.SECONDS) : queue.poll();
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0 || !running) {
+                        break;
+                    }
+                    VisitLog next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // 停机时被中断：继续把队列中剩余的事件写完
+                log.info("访问日志写入器收到停止信号，剩余 {} 条待写入", queue.size());
+            }
+            if (!batch.isEmpty()) {
+                writeBatch(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<VisitLog> batch) {
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + batch.size() * (ROW_PLACEHOLDER.length() + 1));
+        sql.append(INSERT_PREFIX);
+        Object[] args = new Object[batch.size() * 6];
+        int i = 0;
+        for (VisitLog visitLog : batch) {
+            if (i > 0) {
+                sql.append(',');
+            }
+            sql.append(ROW_PLACEHOLDER);
+            args[i++] = visitLog.getUserId();
+            args[i++] = visitLog.getShortCode();
+            args[i++] = visitLog.getIp();
+            args[i++] = visitLog.getLocation();
+            args[i++] = visitLog.getUserAgent();
+            args[i++] = Timestamp.valueOf(visitLog.getCreateTime());
+        }
+
+        long start = System.nanoTime();
+        try {
+            // 单条多行 INSERT 本身是原子的，单独提交，之后预聚合失败也不会回滚原始日志
+            jdbcTemplate.update(sql.toString(), args);
+            writtenCounter.increment(batch.size());
+            batchSizeSummary.record(batch.size());
+        } catch (Exception e) {
+            failedCounter.increment(batch.size());
+            log.error("批量写入访问日志失败: {} 条", batch.size(), e);
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return;
+        }
+        try {
+            upsertRollupsWithRetry(batch);
+        } finally {
+            flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 预聚合 upsert：死锁或锁等待超时时 InnoDB 已回滚整个事务，重新执行不会重复累加
+     */
+    private void upsertRollupsWithRetry(List<VisitLog> batch) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> upsertRollups(batch));
+                return;
+            } catch (PessimisticLockingFailureException e) {
+                if (attempt >= rollupMaxRetries) {
+                    rollupFailedCounter.increment(batch.size());
+                    log.error("小时预聚合写入重试 {} 次仍失败，丢弃该批增量: {} 条", attempt, batch.size(), e);
+                    return;
+                }
+                log.warn("小时预聚合写入发生锁冲突，第 {} 次重试: {}", attempt + 1, e.getMessage());
+                try {
+                    Thread.sleep(ThreadLocalRandom.current().nextLong(10, 50) * (attempt + 1));
+                } catch (InterruptedException ie) {
+                    // 停机中断：不再等待，立即重试
+                    Thread.currentThread().interrupt();
+                }
+            } catch (Exception e) {
+                rollupFailedCounter.increment(batch.size());
+                log.error("小时预聚合写入失败，丢弃该批增量: {} 条", batch.size(), e);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 把一批访问按小时汇总后累加进预聚合表，每张表一条多行 INSERT ... ON DUPLICATE KEY UPDATE
+     * 行按唯一键顺序排列（uk_code_hour / uk_user_hour），各节点以相同顺序加锁
+     */
+    private void upsertRollups(List<VisitLog> batch) {
+        Map<RollupKey, long[]> linkClicks = new TreeMap<>(LINK_KEY_ORDER);
+        Map<RollupKey, long[]> userClicks = new TreeMap<>(USER_KEY_ORDER);
+        for (VisitLog visitLog : batch) {
+            LocalDateTime hour = visitLog.getCreateTime().truncatedTo(ChronoUnit.HOURS);
+            linkClicks.computeIfAbsent(new RollupKey(visitLog.getShortCode(), visitLog.getUserId(), hour),
+                    k -> new long[1])[0]++;
+            if (visitLog.getUserId() != null) {
+                userClicks.computeIfAbsent(new RollupKey(null, visitLog.getUserId(), hour), k -> new long[1])[0]++;
+            }
+        }
+
+        StringBuilder linkSql = new StringBuilder(LINK_ROLLUP_PREFIX);
+        List<Object> linkArgs = new ArrayList<>(linkClicks.size() * 4);
+        linkClicks.forEach((key, clicks) -> {
+            linkSql.append(linkArgs.isEmpty() ? "(?, ?, ?, ?)" : ",(?, ?, ?, ?)");
+            linkArgs.add(key.shortCode());
+            linkArgs.add(key.userId());
+            linkArgs.add(Timestamp.valueOf(key.hour()));
+            linkArgs.add(clicks[0]);
+        });
+        jdbcTemplate.update(linkSql.append(LINK_ROLLUP_SUFFIX).toString(), linkArgs.toArray());
+
+        if (!userClicks.isEmpty()) {
+            StringBuilder userSql = new StringBuilder(USER_ROLLUP_PREFIX);
+            List<Object> userArgs = new ArrayList<>(userClicks.size() * 3);
+            userClicks.forEach((key, clicks) -> {
+                userSql.append(userArgs.isEmpty() ? "(?, ?, ?)" : ",(?, ?, ?)");
+                userArgs.add(key.userId());
+                userArgs.add(Timestamp.valueOf(key.hour()));
+                userArgs.add(clicks[0]);
+            });
+            jdbcTemplate.update(userSql.append(USER_ROLLUP_SUFFIX).toString(), userArgs.toArray());
+        }
+    }
+
+    /**
+     * 预聚合维度：短码表用 (shortCode, hour)，用户表用 (userId, hour)
+     */
+    private record RollupKey(String shortCode, Long userId, LocalDateTime hour) {
+    }
+}
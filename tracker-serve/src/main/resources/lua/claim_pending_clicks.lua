@@ -0,0 +1,18 @@
+-- 认领待同步数据库的点击量：把待同步 Hash 整体并入本节点的在途 Hash 后删除，保证同一批点击只被一个节点同步；
+-- 在途 Hash 中的条目在写库成功后才逐个删除，节点在认领与写库之间宕机也不会丢失
+-- KEYS[1] 待同步数据库的点击量 Hash
+-- KEYS[2] 本节点的在途 Hash
+-- KEYS[3] 本节点的存活租约
+-- KEYS[4] 持有在途 Hash 的节点集合
+-- ARGV[1] 节点 ID  ARGV[2] 租约时长（秒）
+-- 返回：本节点在途 Hash 的全部条目（包括上次写库失败留下的）[field1, value1, field2, value2, ...]
+redis.call('SET', KEYS[3], '1', 'EX', ARGV[2])
+redis.call('SADD', KEYS[4], ARGV[1])
+local entries = redis.call('HGETALL', KEYS[1])
+if #entries > 0 then
+    for i = 1, #entries, 2 do
+        redis.call('HINCRBY', KEYS[2], entries[i], entries[i + 1])
+    end
+    redis.call('DEL', KEYS[1])
+end
+return redis.call('HGETALL', KEYS[2])
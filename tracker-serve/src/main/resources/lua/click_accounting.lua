@@ -0,0 +1,41 @@
+-- 点击量记账脚本：计数器 + 全局榜 + 用户榜 + 同步阈值，一次往返原子完成
+-- KEYS[1] 计数器 key（string 布局为 shortLink:clicks:<code>，hash 布局为 shortLink:h:clicks:<bucket>）
+-- KEYS[2] 全局排行榜 ZSet
+-- KEYS[3] 待同步数据库的点击量 Hash
+-- KEYS[4] 本批次的已执行标记（bitmap，每个短码占一位）
+-- KEYS[5] 用户排行榜 ZSet（可选，短码无归属用户时不传）
+-- ARGV[1] 短码  ARGV[2] 点击增量  ARGV[3] 同步阈值
+-- ARGV[4] 短码在本批次中的序号  ARGV[5] 批次标记的存活时间（秒）
+-- ARGV[6] 桶内 field（可选，传入时 KEYS[1] 为 Hash 桶，计数器为其中的 field）
+-- 返回：记账后计数器中剩余的点击量；该短码在本批次中已经记过账（重试）时返回 -1
+if redis.call('SETBIT', KEYS[4], ARGV[4], 1) == 1 then
+    return -1
+end
+redis.call('EXPIRE', KEYS[4], ARGV[5])
+
+local delta = tonumber(ARGV[2])
+local threshold = tonumber(ARGV[3])
+local field = ARGV[6]
+
+local current
+if field then
+    current = redis.call('HINCRBY', KEYS[1], field, delta)
+else
+    current = redis.call('INCRBY', KEYS[1], delta)
+end
+redis.call('ZINCRBY', KEYS[2], delta, ARGV[1])
+if KEYS[5] then
+    redis.call('ZINCRBY', KEYS[5], delta, ARGV[1])
+end
+
+-- 超过阈值的整数倍部分原子地转入待同步 Hash，多节点并发也不会重复同步或跳过阈值
+if current >= threshold then
+    local moved = current - current % threshold
+    if field then
+        current = redis.call('HINCRBY', KEYS[1], field, -moved)
+    else
+        current = redis.call('DECRBY', KEYS[1], moved)
+    end
+    redis.call('HINCRBY', KEYS[3], ARGV[1], moved)
+end
+return current
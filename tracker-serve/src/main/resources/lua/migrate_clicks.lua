@@ -0,0 +1,11 @@
+-- 存储布局迁移：把 string 布局的点击计数器原子地并入 hash 布局的桶
+-- KEYS[1] 旧计数器（shortLink:clicks:<code>）  KEYS[2] 桶（shortLink:h:clicks:<bucket>）
+-- ARGV[1] 桶内 field（短码）
+-- 返回：迁移的点击量，旧计数器不存在时为 0
+local value = redis.call('GET', KEYS[1])
+if not value then
+    return 0
+end
+redis.call('HINCRBY', KEYS[2], ARGV[1], value)
+redis.call('DEL', KEYS[1])
+return tonumber(value)
@@ -0,0 +1,17 @@
+-- 回收已宕机节点的在途点击量：租约已过期时把其在途 Hash 并回待同步 Hash，由存活节点重新认领
+-- KEYS[1] 待同步数据库的点击量 Hash
+-- KEYS[2] 该节点的在途 Hash
+-- KEYS[3] 该节点的存活租约
+-- KEYS[4] 持有在途 Hash 的节点集合
+-- ARGV[1] 节点 ID
+-- 返回：回收的条目数；节点仍存活时返回 -1
+if redis.call('EXISTS', KEYS[3]) == 1 then
+    return -1
+end
+local entries = redis.call('HGETALL', KEYS[2])
+for i = 1, #entries, 2 do
+    redis.call('HINCRBY', KEYS[1], entries[i], entries[i + 1])
+end
+redis.call('DEL', KEYS[2])
+redis.call('SREM', KEYS[4], ARGV[1])
+return #entries / 2
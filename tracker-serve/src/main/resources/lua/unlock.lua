@@ -0,0 +1,7 @@
+-- 释放分布式锁：只有锁仍属于自己（值等于加锁时写入的 token）才删除，
+-- 避免持锁超时后误删其他线程/节点重新获取的锁
+-- KEYS[1] 锁 key  ARGV[1] 加锁 token
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+    return redis.call('DEL', KEYS[1])
+end
+return 0
@@ -0,0 +1,67 @@
+package com.neozeng.trackerserve.service.impl;
+
+import com.neozeng.trackerserve.pojo.dto.ShortLinkBatchItem;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * ShortLinkBatchServiceImpl.parseLine：CSV 行解析（URL 内逗号、可选过期时间、引号）与结果文件引号往返
+ */
+class ShortLinkBatchServiceImplTest {
+
+    @Test
+    void plainUrl() {
+        ShortLinkBatchItem item = ShortLinkBatchServiceImpl.parseLine("  https://example.com/a  ");
+        assertEquals("https://example.com/a", item.getLongUrl());
+        assertNull(item.getExpireDate());
+    }
+
+    @Test
+    void urlWithExpireDate() {
+        ShortLinkBatchItem item = ShortLinkBatchServiceImpl.parseLine("https://example.com/a,2026-12-31 23:59:59");
+        assertEquals("https://example.com/a", item.getLongUrl());
+        assertEquals("2026-12-31 23:59:59", item.getExpireDate());
+    }
+
+    @Test
+    void commaInsideUrlIsNotAColumn() {
+        // 最后一列不是时间，整行都是 URL
+        ShortLinkBatchItem item = ShortLinkBatchServiceImpl.parseLine("https://example.com/?tags=a,b");
+        assertEquals("https://example.com/?tags=a,b", item.getLongUrl());
+        assertNull(item.getExpireDate());
+
+        item = ShortLinkBatchServiceImpl.parseLine("https://example.com/?tags=a,b,2026-12-31 23:59:59");
+        assertEquals("https://example.com/?tags=a,b", item.getLongUrl());
+        assertEquals("2026-12-31 23:59:59", item.getExpireDate());
+    }
+
+    @Test
+    void quotedColumns() {
+        ShortLinkBatchItem item = ShortLinkBatchServiceImpl.parseLine("\"https://example.com/?tags=a,b\",\"2026-12-31 23:59:59\"");
+        assertEquals("https://example.com/?tags=a,b", item.getLongUrl());
+        assertEquals("2026-12-31 23:59:59", item.getExpireDate());
+    }
+
+    @Test
+    void emptyExpireColumnIsIgnored() {
+        ShortLinkBatchItem item = ShortLinkBatchServiceImpl.parseLine("https://example.com/a,");
+        assertEquals("https://example.com/a", item.getLongUrl());
+        assertNull(item.getExpireDate());
+    }
+
+    @Test
+    void blankUrlIsRejected() {
+        assertNull(ShortLinkBatchServiceImpl.parseLine(""));
+        assertNull(ShortLinkBatchServiceImpl.parseLine("\"\""));
+    }
+
+    @Test
+    void quotedResultColumnRoundTrips() {
+        String url = "https://example.com/?q=\"a,b\"&tags=c,d";
+        ShortLinkBatchItem item = ShortLinkBatchServiceImpl.parseLine(ShortLinkBatchServiceImpl.quote(url));
+        assertEquals(url, item.getLongUrl());
+        assertNull(item.getExpireDate());
+    }
+}
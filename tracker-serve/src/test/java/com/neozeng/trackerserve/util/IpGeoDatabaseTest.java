@@ -0,0 +1,161 @@
+package com.neozeng.trackerserve.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * IpGeoDatabase：CSV 编译 -> 映射 -> 查询的往返、区间边界、IPv4 映射地址与非法字面量
+ */
+class IpGeoDatabaseTest {
+
+    /**
+     * 故意乱序，验证编译时按起始地址排序；128.x 与 ffff:: 用于覆盖无符号比较
+     */
+    private static final String CSV = String.join("\n",
+            "# startIp,endIp,国家,省份,城市",
+            "1.0.2.0,1.0.3.255,中国,北京,北京",
+            "255.255.255.0,255.255.255.255,广播,,",
+            "1.0.0.0,1.0.0.255,中国,福建,福州",
+            "128.0.0.0,128.0.0.10,美国,加州,洛杉矶",
+            "0.0.0.0,0.0.0.255,保留,,",
+            "",
+            "ffff::,ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff,高位,,",
+            "2001:db8::,2001:db8::ffff,测试网,,");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void compileThenOpenRoundTrip() throws IOException {
+        Path csv = write("geo.csv", CSV);
+        Path compiled = dir.resolve("geo.tkdb");
+        IpGeoDatabase.compile(csv, compiled);
+
+        IpGeoDatabase fromBinary = IpGeoDatabase.open(compiled);
+        IpGeoDatabase fromCsv = IpGeoDatabase.open(csv);
+        for (IpGeoDatabase db : new IpGeoDatabase[]{fromBinary, fromCsv}) {
+            assertEquals(5, db.getIpv4Count());
+            assertEquals(2, db.getIpv6Count());
+            assertEquals("中国-福建-福州", db.lookup("1.0.0.1"));
+            assertEquals("中国-北京", db.lookup("1.0.2.1"));
+            assertEquals("美国-加州-洛杉矶", db.lookup("128.0.0.5"));
+            assertEquals("测试网", db.lookup("2001:db8::1"));
+        }
+    }
+
+    @Test
+    void ipv4RangeEdges() throws IOException {
+        IpGeoDatabase db = open(CSV);
+
+        assertEquals("中国-福建-福州", db.lookup("1.0.0.0"));
+        assertEquals("中国-福建-福州", db.lookup("1.0.0.255"));
+        // 两个区间之间的空隙
+        assertNull(db.lookup("1.0.1.0"));
+        assertNull(db.lookup("1.0.1.255"));
+        assertEquals("中国-北京", db.lookup("1.0.2.0"));
+        assertEquals("中国-北京", db.lookup("1.0.3.255"));
+        assertNull(db.lookup("1.0.4.0"));
+        assertNull(db.lookup("0.0.1.0"));
+
+        // 最高位为 1 的地址按无符号比较
+        assertNull(db.lookup("127.255.255.255"));
+        assertEquals("美国-加州-洛杉矶", db.lookup("128.0.0.0"));
+        assertEquals("美国-加州-洛杉矶", db.lookup("128.0.0.10"));
+        assertNull(db.lookup("128.0.0.11"));
+
+        // 地址空间两端
+        assertEquals("保留", db.lookup("0.0.0.0"));
+        assertEquals("广播", db.lookup("255.255.255.255"));
+        assertEquals("广播", db.lookup("255.255.255.0"));
+        assertNull(db.lookup("255.255.254.255"));
+    }
+
+    @Test
+    void ipv6RangeEdges() throws IOException {
+        IpGeoDatabase db = open(CSV);
+
+        assertEquals("测试网", db.lookup("2001:db8::"));
+        assertEquals("测试网", db.lookup("2001:db8::ffff"));
+        assertNull(db.lookup("2001:db8::1:0"));
+        assertNull(db.lookup("2001:db7:ffff:ffff:ffff:ffff:ffff:ffff"));
+        assertNull(db.lookup("::1"));
+        assertEquals("高位", db.lookup("ffff::"));
+        assertEquals("高位", db.lookup("ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff"));
+        assertNull(db.lookup("fffe:ffff:ffff:ffff:ffff:ffff:ffff:ffff"));
+        // 带 zone id 的链路本地写法
+        assertEquals("测试网", db.lookup("2001:db8::1%eth0"));
+    }
+
+    @Test
+    void ipv4MappedIpv6UsesIpv4Table() throws IOException {
+        IpGeoDatabase db = open(CSV);
+
+        assertEquals("中国-福建-福州", db.lookup("::ffff:1.0.0.1"));
+        assertEquals("中国-福建-福州", db.lookup("::ffff:100:1"));
+        assertEquals("广播", db.lookup("::ffff:255.255.255.255"));
+        assertNull(db.lookup("::ffff:1.0.1.0"));
+    }
+
+    @Test
+    void malformedLiteralsAreRejected() throws IOException {
+        // 覆盖整个 IPv4 空间，查不到只可能是字面量被拒绝
+        IpGeoDatabase db = open("0.0.0.0,255.255.255.255,任意,,");
+        assertEquals("任意", db.lookup("8.8.8.8"));
+        assertEquals("任意", db.lookup(" 8.8.8.8 "));
+
+        assertNull(db.lookup(null));
+        assertNull(db.lookup(""));
+        assertNull(db.lookup("1.2.3"));
+        assertNull(db.lookup("1.2.3.4.5"));
+        assertNull(db.lookup("256.1.1.1"));
+        assertNull(db.lookup("1.2.3.256"));
+        assertNull(db.lookup("1..2.3"));
+        assertNull(db.lookup("1.2.3."));
+        assertNull(db.lookup("-1.2.3.4"));
+        assertNull(db.lookup("localhost"));
+        assertNull(db.lookup("example.com"));
+        assertNull(db.lookup("g::1"));
+        assertNull(db.lookup("1:2:3:4:5:6:7:8:9"));
+    }
+
+    @Test
+    void compileRejectsMalformedRows() throws IOException {
+        Path target = dir.resolve("bad.tkdb");
+        assertThrows(IllegalArgumentException.class,
+                () -> IpGeoDatabase.compile(write("a.csv", "1.2.3,1.2.3.4,中国,,"), target));
+        assertThrows(IllegalArgumentException.class,
+                () -> IpGeoDatabase.compile(write("b.csv", "example.com,1.2.3.4,中国,,"), target));
+        // 起止地址属于不同协议族
+        assertThrows(IllegalArgumentException.class,
+                () -> IpGeoDatabase.compile(write("c.csv", "1.2.3.4,2001:db8::1,中国,,"), target));
+        assertThrows(IllegalArgumentException.class,
+                () -> IpGeoDatabase.compile(write("d.csv", "1.2.3.4,1.2.3.5,中国"), target));
+    }
+
+    @Test
+    void formatLocationOmitsDuplicateCity() {
+        assertEquals("中国-上海", IpGeoDatabase.formatLocation("中国", "上海", "上海"));
+        assertEquals("中国-广东-深圳", IpGeoDatabase.formatLocation("中国", "广东", "深圳"));
+        assertEquals("未知", IpGeoDatabase.formatLocation("", "", ""));
+    }
+
+    private IpGeoDatabase open(String csv) throws IOException {
+        IpGeoDatabase db = IpGeoDatabase.open(write("geo-" + System.nanoTime() + ".csv", csv));
+        assertNotNull(db);
+        return db;
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.writeString(dir.resolve(name), content, StandardCharsets.UTF_8);
+    }
+}
@@ -16,11 +16,16 @@ export interface ShortLinkItem {
   totalClicks: number;  // 点击统计
   expireTime: string;   // 过期时间
   createTime: string;   // 创建时间
+  redirectType?: number;       // 重定向状态码（301/302/307/308），为空表示 302
+  cacheMaxAge?: number;        // 跳转允许浏览器 / CDN 缓存的秒数
+  cacheableRedirect: boolean;  // 为 true 时部分访问被缓存直接跳转，点击量偏少
 }
 
 export interface UpdateShortLinkParam {
   longUrl: string;
   expireTime: string;
+  redirectType?: number;  // 不传则保持不变
+  cacheMaxAge?: number;   // 不传则保持不变
 }
 // 访问日志数据结构（对应 VisitLog 实体）
 export interface VisitLog {
@@ -39,6 +44,26 @@ export interface CreateShortLinkParam {
   longUrl: string;
   workspace: string;
   expireDate?: string;
+  dedup?: boolean;      // 相同链接是否复用已有短码，不传则使用服务端默认配置
+  redirectType?: number; // 301/302/307/308，不传为 302
+  cacheMaxAge?: number;  // 跳转允许缓存的秒数，不传为 0（不缓存）
+}
+
+export interface BatchCreateItem {
+  longUrl: string;
+  expireDate?: string;
+}
+
+// 导入任务进度（数值字段以字符串形式返回）
+export interface ImportProgress {
+  status: 'RUNNING' | 'DONE' | 'FAILED';
+  fileName: string;
+  processed: string;
+  created: string;
+  failed: string;
+  error?: string;
+  startTime: string;
+  endTime?: string;
 }
 
 export const shortLinkApi = {
@@ -95,5 +120,39 @@ export const shortLinkApi = {
       url: '/shortLink/visits/recent',
       method: 'get'
     });
+  },
+
+  /**
+   * 批量创建短链接，返回与输入顺序一致的短码列表
+   */
+  batchCreate(items: BatchCreateItem[]) {
+    return request<string[]>({
+      url: '/shortLink/batchCreate',
+      method: 'post',
+      data: items
+    });
+  },
+
+  /**
+   * 上传 CSV 文件导入短链接（每行：longUrl[,expireDate]），返回任务 ID
+   */
+  importFile(file: File) {
+    const formData = new FormData();
+    formData.append('file', file);
+    return request<string>({
+      url: '/shortLink/import',
+      method: 'post',
+      data: formData
+    });
+  },
+
+  /**
+   * 查询导入进度
+   */
+  importProgress(jobId: string) {
+    return request<ImportProgress>({
+      url: `/shortLink/import/${jobId}`,
+      method: 'get'
+    });
   }
 };
\ No newline at end of file
@@ -10,6 +10,13 @@ export interface VisitLog {
   createTime: string
 }
 
+// 访问记录分页结果（游标分页，nextCursor 为不透明字符串，原样回传即可）
+export interface VisitLogPage {
+  content: VisitLog[]
+  hasMore: boolean
+  nextCursor: string | null
+}
+
 // 点击量趋势数据点
 export interface ClickTrendItem {
   date: string // 日期，格式：YYYY-MM-DD 或 HH:00
@@ -37,12 +44,16 @@ export const statsApi = {
   /**
    * 获取点击量趋势（过去 N 天）
    * @param days 天数，默认 7
+   * @param granularity 粒度：day 按天 / hour 按小时
+   * @param shortCode 只统计指定短码，不传则统计全部
    */
-  clickTrend(days: number = 7) {
+  clickTrend(days: number = 7, granularity: 'day' | 'hour' = 'day', shortCode?: string) {
+    // 按浏览器所在时区划分日期/小时
+    const timeZone = Intl.DateTimeFormat().resolvedOptions().timeZone
     return request<ClickTrendItem[]>({
       url: '/shortLink/stats/clickTrend',
       method: 'get',
-      params: { days },
+      params: { days, granularity, timeZone, shortCode },
     })
   },
 
@@ -59,15 +70,15 @@ export const statsApi = {
   },
 
   /**
-   * 获取所有访问记录（分页）
-   * @param page 页码（从 0 开始）
+   * 获取所有访问记录（游标分页）
+   * @param cursor 上一页返回的 nextCursor，第一页不传
    * @param size 每页大小
    */
-  allVisits(page: number = 0, size: number = 20) {
-    return request<{ content: VisitLog[]; totalElements: number }>({
+  allVisits(cursor?: string, size: number = 20) {
+    return request<VisitLogPage>({
       url: '/shortLink/visits/all',
       method: 'get',
-      params: { page, size },
+      params: { cursor, size },
     })
   },
 }